@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.examples.charts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.webtoolkit.jwt.Configuration;
+import eu.webtoolkit.jwt.WApplication;
+import eu.webtoolkit.jwt.WLength;
+import eu.webtoolkit.jwt.WMemoryResource;
+import eu.webtoolkit.jwt.WPainter;
+import eu.webtoolkit.jwt.WRasterPaintDevice;
+import eu.webtoolkit.jwt.WRectF;
+import eu.webtoolkit.jwt.WTestEnvironment;
+import eu.webtoolkit.jwt.WWidget;
+import eu.webtoolkit.jwt.WXmlLocalizedStrings;
+import eu.webtoolkit.jwt.chart.WAbstractChart;
+
+/**
+ * Renders the charts of the charts example as PNG images at 4K resolution,
+ * painting each image directly, and in tiled mode.
+ *
+ * Usage: ChartsRasterBenchmark [iterations [compression level]]
+ */
+public class ChartsRasterBenchmark {
+    private static final int WIDTH = 3840;
+    private static final int HEIGHT = 2160;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int compressionLevel = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+
+        WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+        WXmlLocalizedStrings resourceBundle = new WXmlLocalizedStrings();
+        resourceBundle.use("/eu/webtoolkit/jwt/examples/charts/charts");
+        app.setLocalizedStrings(resourceBundle);
+
+        new ChartsExample(app.getRoot());
+
+        List<WAbstractChart> charts = new ArrayList<WAbstractChart>();
+        findCharts(app.getRoot(), charts);
+
+        for (boolean tiled : new boolean[] { false, true }) {
+            // warm up
+            render(charts, tiled, compressionLevel);
+
+            long start = System.nanoTime();
+            long bytes = 0;
+            for (int i = 0; i < iterations; ++i)
+                bytes += render(charts, tiled, compressionLevel);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println((tiled ? "tiled:  " : "direct: ")
+                    + (elapsed / 1000000 / ((long) iterations * charts.size())) + " ms/image, "
+                    + (bytes / ((long) iterations * charts.size())) + " bytes/image");
+        }
+    }
+
+    private static long render(List<WAbstractChart> charts, boolean tiled, int compressionLevel) {
+        long bytes = 0;
+
+        for (WAbstractChart chart : charts) {
+            WRasterPaintDevice device = new WRasterPaintDevice("png", new WLength(WIDTH), new WLength(HEIGHT));
+            device.setTiledRendering(tiled);
+            device.setCompressionLevel(compressionLevel);
+
+            WPainter painter = new WPainter(device);
+            chart.paint(painter, new WRectF(0, 0, WIDTH, HEIGHT));
+            painter.end();
+
+            bytes += ((WMemoryResource) device.getBotResource()).getData().length;
+            device.remove();
+        }
+
+        return bytes;
+    }
+
+    private static void findCharts(WWidget widget, List<WAbstractChart> charts) {
+        if (widget instanceof WAbstractChart)
+            charts.add((WAbstractChart) widget);
+
+        for (WWidget child : widget.getChildren())
+            findCharts(child, charts);
+    }
+}
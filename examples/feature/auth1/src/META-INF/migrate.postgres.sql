@@ -0,0 +1,13 @@
+-- Migrates a database that was created with an earlier schema.postgres.sql.
+--
+-- Users whose normalized email is empty are also found by their email, and
+-- get their normalized email filled in when they are found. Running the
+-- update below avoids this fallback lookup.
+
+alter table "auth_info" add column "normalized_email" varchar(256) not null default '';
+update "auth_info" set "normalized_email" = lower("email");
+
+create index "ix_auth_info_normalized_email" on "auth_info" ("normalized_email");
+create index "ix_auth_info_email_token" on "auth_info" ("email_token");
+create index "ix_auth_token_value" on "auth_token" ("value");
+create index "ix_auth_identity_provider_identity" on "auth_identity" ("provider", "identity");
@@ -14,6 +14,7 @@ create table "auth_info" (
   "failed_login_attempts" integer not null,
   "last_login_attempt" date,
   "email" varchar(256) not null,
+  "normalized_email" varchar(256) not null,
   "unverified_email" varchar(256) not null,
   "email_token" varchar(64) not null,
   "email_token_expires" date,
@@ -39,6 +40,11 @@ create table "auth_identity" (
   constraint "fk_auth_identity_auth_info" foreign key ("auth_info_id") references "auth_info" ("id")
 );
 
+create index "ix_auth_info_normalized_email" on "auth_info" ("normalized_email");
+create index "ix_auth_info_email_token" on "auth_info" ("email_token");
+create index "ix_auth_token_value" on "auth_token" ("value");
+create index "ix_auth_identity_provider_identity" on "auth_identity" ("provider", "identity");
+
 create sequence hibernate_sequence;
 
 
@@ -25,6 +25,7 @@ import eu.webtoolkit.jwt.auth.PasswordService;
 import eu.webtoolkit.jwt.auth.PasswordStrengthValidator;
 import eu.webtoolkit.jwt.auth.PasswordVerifier;
 import eu.webtoolkit.jwt.auth.jpa.AuthInfo;
+import eu.webtoolkit.jwt.auth.jpa.AuthTokenCache;
 import eu.webtoolkit.jwt.auth.jpa.UserDatabase;
 
 public class Session {
@@ -32,6 +33,7 @@ public class Session {
 	static AuthService myAuthService;
 	static PasswordService myPasswordService;
 	static List<OAuthService> myOAuthServices;
+	static AuthTokenCache myAuthTokenCache = new AuthTokenCache(10000);
 
 	public static void configureAuth() {
 		if (myAuthService != null) 
@@ -90,6 +92,7 @@ public class Session {
 		entityManager_ = entityManager;
 		login_ = new Login();
 		userDatabase_ = new UserDatabase(entityManager_);
+		userDatabase_.setAuthTokenCache(myAuthTokenCache);
 	}
 
 	public AuthInfo getAuthInfo() {
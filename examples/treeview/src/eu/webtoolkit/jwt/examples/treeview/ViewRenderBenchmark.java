@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.examples.treeview;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.webtoolkit.jwt.Configuration;
+import eu.webtoolkit.jwt.WApplication;
+import eu.webtoolkit.jwt.WLength;
+import eu.webtoolkit.jwt.WStandardItem;
+import eu.webtoolkit.jwt.WStandardItemModel;
+import eu.webtoolkit.jwt.WTableView;
+import eu.webtoolkit.jwt.WTestEnvironment;
+import eu.webtoolkit.jwt.WTreeView;
+import eu.webtoolkit.jwt.WWidget;
+
+/**
+ * Measures the memory allocated by a full render of a WTableView and of an
+ * expanded WTreeView.
+ *
+ * Usage: ViewRenderBenchmark [iterations]
+ */
+public class ViewRenderBenchmark {
+    private static final int TABLE_ROWS = 500;
+    private static final int TABLE_COLUMNS = 8;
+    private static final int TREE_NODES = 30;
+    private static final int TREE_LEAVES = 20;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        com.sun.management.ThreadMXBean threads
+            = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int run = 0; run < 3; ++run) {
+            long tableBytes = 0, treeBytes = 0, nanos = 0;
+
+            for (int i = 0; i < iterations; ++i) {
+                WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+
+                WTableView table = new WTableView(app.getRoot());
+                table.setModel(createTableModel());
+                table.resize(new WLength(800), new WLength(10000));
+
+                WTreeView tree = new WTreeView(app.getRoot());
+                tree.setModel(createTreeModel());
+                tree.expandToDepth(2);
+                tree.resize(new WLength(800), new WLength(10000));
+
+                long start = System.nanoTime();
+                long a0 = threads.getThreadAllocatedBytes(threadId);
+                render(table);
+                long a1 = threads.getThreadAllocatedBytes(threadId);
+                render(tree);
+                long a2 = threads.getThreadAllocatedBytes(threadId);
+                nanos += System.nanoTime() - start;
+
+                tableBytes += a1 - a0;
+                treeBytes += a2 - a1;
+            }
+
+            System.out.println("table: " + tableBytes / iterations / 1024 + " KiB/render, "
+                    + "tree: " + treeBytes / iterations / 1024 + " KiB/render, "
+                    + nanos / iterations / 1000 + " us/iteration");
+        }
+    }
+
+    private static void render(WWidget widget) {
+        widget.htmlText(new StringWriter());
+    }
+
+    private static WStandardItemModel createTableModel() {
+        WStandardItemModel model = new WStandardItemModel(TABLE_ROWS, TABLE_COLUMNS);
+        for (int row = 0; row < TABLE_ROWS; ++row)
+            for (int column = 0; column < TABLE_COLUMNS; ++column)
+                model.setData(row, column, "Item " + row + "," + column);
+        return model;
+    }
+
+    private static WStandardItemModel createTreeModel() {
+        WStandardItemModel model = new WStandardItemModel(0, 3);
+        for (int node = 0; node < TREE_NODES; ++node) {
+            List<WStandardItem> row = createRow("Node " + node);
+            for (int leaf = 0; leaf < TREE_LEAVES; ++leaf)
+                row.get(0).appendRow(createRow("Leaf " + leaf));
+            model.appendRow(row);
+        }
+        return model;
+    }
+
+    private static List<WStandardItem> createRow(String text) {
+        List<WStandardItem> row = new ArrayList<WStandardItem>();
+        for (int column = 0; column < 3; ++column)
+            row.add(new WStandardItem(text + "," + column));
+        return row;
+    }
+}
@@ -14,9 +14,9 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -87,7 +87,7 @@ public abstract class WtServlet extends HttpServlet {
 
 	private Configuration configuration;
 	private ProgressListener progressListener;
-	private Set<String> uploadProgressUrls_ = new HashSet<String>();
+	private Set<String> uploadProgressUrls_ = ConcurrentHashMap.newKeySet();
 	private int ajaxSessions = 0;
 	private Map<String,WebSession> sessions = new HashMap<String,WebSession>();
 
@@ -431,30 +431,17 @@ public abstract class WtServlet extends HttpServlet {
 	}
 
 	void addUploadProgressUrl(String url) {
-		synchronized (uploadProgressUrls_) {
-			uploadProgressUrls_.add(url.substring(url.indexOf('?') + 1));
-		}
+		uploadProgressUrls_.add(url.substring(url.indexOf('?') + 1));
 	}
 
 	void removeUploadProgressUrl(String url) {
-		synchronized (uploadProgressUrls_) {
-			uploadProgressUrls_.remove(url.substring(url.indexOf('?') + 1));
-		}
+		uploadProgressUrls_.remove(url.substring(url.indexOf('?') + 1));
 	}
 
 	boolean requestDataReceived(WebRequest request, long current, long total) {
-		boolean found = false;
-
-		synchronized (uploadProgressUrls_) {
-			for (String url : uploadProgressUrls_) {
-				if (url.equals(request.getQueryString())) {
-					found = true;
-					break;
-				}
-			}
-		}
+		String query = request.getQueryString();
 
-		if (found) {
+		if (query != null && uploadProgressUrls_.contains(query)) {
 			HttpSession jsession = request.getSession();
 			BoundSession bsession = (BoundSession) jsession.getAttribute(WtServlet.WT_WEBSESSION_ID);
 			WebSession wsession = null;
@@ -6,14 +6,21 @@
 package eu.webtoolkit.jwt.servlet;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -200,7 +207,7 @@ public class WebRequest extends HttpServletRequestWrapper {
 		computePaths(configuration);
 
 		try {
-			parse(progressListener);
+			parse(progressListener, configuration);
 		} catch (IOException e) {
 			logger.info("IO Exception parsing request", e);
 		}
@@ -274,72 +281,130 @@ public class WebRequest extends HttpServletRequestWrapper {
 		return pathInfo;
 	}
 
-	@SuppressWarnings({ "unchecked", "deprecation" })
-	private void parse(final ProgressListener progressUpdate) throws IOException {
+	private void parse(final ProgressListener progressUpdate, final Configuration configuration) throws IOException {
 		if (AbstractFileUpload.isMultipartContent(new JakartaServletRequestContext(this))) {
-			try {
-				// Create a factory for disk-based file items
-				DiskFileItemFactory factory = DiskFileItemFactory.builder().get();
+			Map<String, List<UploadedFile>> files = new HashMap<String, List<UploadedFile>>();
+			List<String[]> fields = new ArrayList<String[]>();
 
-				// Create a new file upload handler
-				AbstractFileUpload<HttpServletRequest, DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>(factory);
+			try {
+				JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
 
 				if (progressUpdate != null) {
 					upload.setProgressListener((pBytesRead, pContentLength, pItems) -> progressUpdate.update(WebRequest.this, pBytesRead, pContentLength));
 				}
 
-				// Parse the request
-				List items = upload.parseRequest(this);
-
-				parseParameters();
-				
-				Iterator itr = items.iterator();
-
-				FileItem fi;
-				Path f = null;
+				// Stream the parts: each file is written once, directly to its
+				// final temporary file
+				Charset defaultCharset = getRequestCharset();
+				FileItemInputIterator itr = upload.getItemIterator(this);
 				while (itr.hasNext()) {
-					fi = (FileItem) itr.next();
+					FileItemInput fi = itr.next();
 
 					// Check if not form field so as to only handle the file inputs
 					// else condition handles the submit button input
 					if (!fi.isFormField()) {
+						Path f = null;
 						try {
-							f = Files.createTempFile("jwt", "jwt");
-							fi.write(f);
-							fi.delete();
+							f = createUploadFile(configuration);
+							spool(fi.getInputStream(), f, configuration);
 						} catch (IOException e) {
-							logger.error("IOException creating temp file {}", f.toString(), e);
-						} catch (Exception e) {
-							logger.error("Exception creating temp file {}", f.toString(), e);
+							logger.error("IOException writing temp file {}", f, e);
 						}
 
-						List<UploadedFile> files = files_.get(fi.getFieldName());
-						if (files == null) {
-							files = new ArrayList<UploadedFile>();
-							files_.put(fi.getFieldName(), files);
+						if (f != null) {
+							List<UploadedFile> l = files.get(fi.getFieldName());
+							if (l == null) {
+								l = new ArrayList<UploadedFile>();
+								files.put(fi.getFieldName(), l);
+							}
+							l.add(new UploadedFile(f.toString(), fi.getName(), fi.getContentType()));
 						}
-						files.add(new UploadedFile(f.toString(), fi.getName(), fi.getContentType()));
 					} else {
-						String[] v = parameters_.get(fi.getFieldName());
-						if (v == null)
-							v = new String[1];
-						else {
-							String[] newv = new String[v.length + 1];
-							for (int i = 0; i < v.length; ++i)
-								newv[i] = v[i];
-							v = newv;
-						}
-						v[v.length - 1] = fi.getString();
-						parameters_.put(fi.getFieldName(), v);
+						long maxSize = configuration != null ? configuration.getMaxFormDataSize() : Integer.MAX_VALUE - 8;
+						byte[] value = fi.getInputStream().readNBytes((int) Math.min(maxSize + 1, Integer.MAX_VALUE - 8));
+						if (value.length > maxSize)
+							logger.warn("Form field {} exceeds the maximum size of {} bytes, ignoring it", fi.getFieldName(), maxSize);
+						else
+							fields.add(new String[] { fi.getFieldName(), new String(value, getPartCharset(fi.getContentType(), defaultCharset)) });
 					}
 				}
 			} catch (FileUploadException e) {
 				logger.info("FileUploadException", e);
 			}
+
+			parseParameters();
+
+			files_.putAll(files);
+			for (String[] field : fields) {
+				String[] v = parameters_.get(field[0]);
+				if (v == null)
+					v = new String[1];
+				else
+					v = Arrays.copyOf(v, v.length + 1);
+				v[v.length - 1] = field[1];
+				parameters_.put(field[0], v);
+			}
 		} else
 			parseParameters();
 	}
 
+	private static Path createUploadFile(Configuration configuration) throws IOException {
+		String dir = configuration != null ? configuration.getUploadDirectory() : null;
+		if (dir != null && dir.length() != 0)
+			return Files.createTempFile(Paths.get(dir), "jwt", "jwt");
+		else
+			return Files.createTempFile("jwt", "jwt");
+	}
+
+	private static void spool(InputStream in, Path f, Configuration configuration) throws IOException {
+		long chunk = configuration != null ? configuration.getUploadBufferSize() : 64 * 1024;
+		try (ReadableByteChannel source = Channels.newChannel(in);
+				FileChannel target = FileChannel.open(f, StandardOpenOption.WRITE)) {
+			long position = 0;
+			for (;;) {
+				// the source is blocking: 0 bytes transferred means end of stream
+				long n = target.transferFrom(source, position, chunk);
+				if (n <= 0)
+					break;
+				position += n;
+			}
+		}
+	}
+
+	/*
+	 * The charset of multipart fields without a charset of their own: the
+	 * request's character encoding, or ISO-8859-1.
+	 */
+	private Charset getRequestCharset() {
+		String encoding = getCharacterEncoding();
+		if (encoding != null) {
+			try {
+				return Charset.forName(encoding);
+			} catch (IllegalArgumentException e) {
+				logger.info("Unsupported charset {}", encoding);
+			}
+		}
+
+		return StandardCharsets.ISO_8859_1;
+	}
+
+	private static Charset getPartCharset(String contentType, Charset defaultCharset) {
+		if (contentType != null) {
+			ParameterParser parser = new ParameterParser();
+			parser.setLowerCaseNames(true);
+			String charset = parser.parse(contentType, ';').get("charset");
+			if (charset != null) {
+				try {
+					return Charset.forName(charset);
+				} catch (IllegalArgumentException e) {
+					logger.info("Unsupported charset {}", charset);
+				}
+			}
+		}
+
+		return defaultCharset;
+	}
+
 	private void parseParameters() throws IOException {
 		Map<String, String[]> parameterMap = super.getParameterMap();
 
@@ -12,7 +12,11 @@ import java.io.Writer;
 import java.security.SecureRandom;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
@@ -47,6 +51,7 @@ public class WebResponse extends HttpServletResponseWrapper {
 	private ServletOutputStream outputStream;
 	private ResponseType responseType;
 	private String nonce = new String("");
+	private boolean streaming = false;
 
 	/**
 	 * Constructor which wraps a HttpServletResponse.
@@ -183,6 +188,132 @@ public class WebResponse extends HttpServletResponseWrapper {
 		}
 	}
 
+	/**
+	 * Streams the response body asynchronously.
+	 * <p>
+	 * This may be used from within
+	 * {@link WResource#handleRequest(WebRequest, WebResponse)} to produce a
+	 * large response in chunks: the status and headers should be set before
+	 * calling this method, after which the body is produced by the
+	 * <i>streamer</i>. The resource should return from handleRequest() right
+	 * after calling this method.
+	 * <p>
+	 * When the request is processed asynchronously, chunks are written using
+	 * the servlet's non-blocking I/O: the next chunk is only requested when
+	 * the output stream is ready to accept more data, and no thread is
+	 * occupied while waiting for the client. Otherwise, all chunks are written
+	 * before this method returns.
+	 *
+	 * @param streamer the streamer that produces the response body
+	 */
+	public void stream(final WResource.ResponseStreamer streamer) {
+		streaming = true;
+
+		try {
+			if (outWriter != null)
+				outWriter.flush();
+		} catch (IOException e) {
+			logger.info("IOException in flush", e);
+		}
+
+		if (request == null || !(request.isAsyncStarted() || request.isAsyncSupported())) {
+			try {
+				ServletOutputStream out = getOutputStream();
+				boolean more;
+				do {
+					more = streamer.writeChunk(out);
+					/*
+					 * The output stream suppresses write errors, hence check
+					 * whether the client is still there after every chunk.
+					 */
+					if (out instanceof ErrorSuppressingOutputStream && !((ErrorSuppressingOutputStream) out).valid)
+						throw new IOException("Writing the response failed");
+				} while (more);
+			} catch (IOException | RuntimeException e) {
+				logger.info("Exception while streaming response", e);
+				streamer.cancelled(e);
+			}
+			flush();
+			return;
+		}
+
+		final ServletOutputStream out;
+		try {
+			out = getResponse().getOutputStream();
+		} catch (IOException e) {
+			logger.info("IOException in stream", e);
+			streamer.cancelled(e);
+			flush();
+			return;
+		}
+
+		final AsyncContext context = request.isAsyncStarted() ? request.getAsyncContext() : request.startAsync();
+		context.setTimeout(0);
+
+		final AtomicBoolean done = new AtomicBoolean(false);
+
+		context.addListener(new AsyncListener() {
+			@Override
+			public void onComplete(AsyncEvent event) {
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				if (done.compareAndSet(false, true))
+					streamer.cancelled(event.getThrowable());
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				if (done.compareAndSet(false, true))
+					streamer.cancelled(event.getThrowable());
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+
+		out.setWriteListener(new WriteListener() {
+			@Override
+			public void onWritePossible() {
+				try {
+					while (!done.get() && out.isReady()) {
+						if (!streamer.writeChunk(out)) {
+							if (done.compareAndSet(false, true))
+								context.complete();
+							return;
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					logger.debug("Exception while streaming response", e);
+					abort(e);
+				}
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				abort(t);
+			}
+
+			private void abort(Throwable t) {
+				if (done.compareAndSet(false, true)) {
+					streamer.cancelled(t);
+					context.complete();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns whether the response body is being streamed.
+	 *
+	 * @see #stream(WResource.ResponseStreamer)
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
 	/**
 	 * Returns the request path information.
 	 * <p>
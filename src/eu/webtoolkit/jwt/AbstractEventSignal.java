@@ -191,6 +191,7 @@ public abstract class AbstractEventSignal extends AbstractSignal {
 	private ArrayList<LearningListener> learningListeners;
 	private byte flags_;
 	private int id_;
+	private String cmd_;
 	private String name_;
 	private static AtomicInteger nextId_ = new AtomicInteger(0);
 	private WObject sender_;
@@ -359,7 +360,21 @@ public abstract class AbstractEventSignal extends AbstractSignal {
 	}
 
 	String encodeCmd() {
-		return String.format("s%x", id_);
+		if (cmd_ == null)
+			cmd_ = WeakIdMap.encode('s', id_);
+		return cmd_;
+	}
+
+	/*
+	 * Returns whether the signal is identified by getEncodedId(), which is
+	 * encoded by encodeCmd().
+	 */
+	boolean hasEncodedId() {
+		return true;
+	}
+
+	int getEncodedId() {
+		return id_;
 	}
 
 	String getJavaScript() {
@@ -42,6 +42,11 @@ public abstract class AbstractJSignal extends AbstractEventSignal {
 		return senderId(getSender()) + "." + name;
 	}
 
+	@Override
+	boolean hasEncodedId() {
+		return false;
+	}
+
 	protected String createUserEventCall(String jsObject, String jsEvent, String arg1, String arg2, String arg3, String arg4, String arg5, String arg6) {
 
 		return createUserEventCall(jsObject, jsEvent, name, arg1, arg2, arg3, arg4, arg5, arg6);
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/*
+ * A file that is uploaded in fixed size chunks, possibly out of order and in
+ * parallel.
+ *
+ * The file is preallocated at its final size, and every chunk is written at its
+ * own offset using positional writes on a single FileChannel, which may be
+ * done concurrently from several request threads. The set of received chunks
+ * allows a client to resume an interrupted upload. A chunk that was already
+ * received is not written again, so that a retried chunk also succeeds after
+ * the upload completed.
+ */
+final class ChunkedFileUpload {
+	private final Path file_;
+	private final long size_;
+	private final long chunkSize_;
+	private final int chunkCount_;
+	private final FileChannel channel_;
+	private final BitSet received_;
+	private boolean complete_;
+
+	ChunkedFileUpload(Path file, long size, long chunkSize) throws IOException {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("ChunkedFileUpload: chunk size must be positive");
+
+		long chunkCount = Math.max(1, (size + chunkSize - 1) / chunkSize);
+		if (size < 0 || chunkCount > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("ChunkedFileUpload: invalid size " + size);
+
+		file_ = file;
+		size_ = size;
+		chunkSize_ = chunkSize;
+		chunkCount_ = (int) chunkCount;
+		received_ = new BitSet(chunkCount_);
+		channel_ = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		if (size > 0)
+			channel_.write(ByteBuffer.wrap(new byte[1]), size - 1);
+	}
+
+	Path getFile() {
+		return file_;
+	}
+
+	int getChunkCount() {
+		return chunkCount_;
+	}
+
+	/*
+	 * Writes a chunk from a stream, which must provide exactly the chunk's
+	 * data.
+	 *
+	 * Returns whether this completed the upload: this is true for only one
+	 * call. Throws an IOException when the stream does not match the chunk, in
+	 * which case the chunk is not considered received, or when the upload was
+	 * discarded.
+	 */
+	boolean writeChunk(int chunk, InputStream in, int bufferSize) throws IOException {
+		if (chunk < 0 || chunk >= chunkCount_)
+			throw new IOException("invalid chunk " + chunk);
+
+		synchronized (this) {
+			if (received_.get(chunk))
+				return false;
+			if (complete_)
+				throw new IOException("upload was discarded");
+		}
+
+		long position = chunk * chunkSize_;
+		long length = Math.min(chunkSize_, size_ - position);
+
+		ReadableByteChannel source = Channels.newChannel(in);
+		long written = 0;
+		while (written < length) {
+			long n = channel_.transferFrom(source, position + written, Math.min(bufferSize, length - written));
+			if (n <= 0)
+				break;
+			written += n;
+		}
+
+		if (written != length || in.read() != -1)
+			throw new IOException("chunk " + chunk + " has an invalid length");
+
+		synchronized (this) {
+			received_.set(chunk);
+			if (complete_ || received_.cardinality() != chunkCount_)
+				return false;
+			complete_ = true;
+		}
+
+		channel_.close();
+		return true;
+	}
+
+	synchronized long getReceivedBytes() {
+		long result = received_.cardinality() * chunkSize_;
+		if (received_.get(chunkCount_ - 1))
+			result -= chunkCount_ * chunkSize_ - size_;
+		return Math.max(0, result);
+	}
+
+	/*
+	 * Returns the received chunks as a comma separated list.
+	 */
+	synchronized String getReceivedChunks() {
+		StringBuilder result = new StringBuilder();
+		for (int i = received_.nextSetBit(0); i >= 0; i = received_.nextSetBit(i + 1)) {
+			if (result.length() != 0)
+				result.append(',');
+			result.append(i);
+		}
+		return result.toString();
+	}
+
+	/*
+	 * Discards an incomplete upload.
+	 */
+	void discard() {
+		synchronized (this) {
+			if (complete_)
+				return;
+			complete_ = true;
+		}
+
+		try {
+			channel_.close();
+			Files.deleteIfExists(file_);
+		} catch (IOException e) {
+		}
+	}
+}
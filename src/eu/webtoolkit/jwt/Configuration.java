@@ -190,6 +190,9 @@ public class Configuration {
 	private long maxRequestSize = 1024*1024; // 1 Megabyte
 	private long maxFormDataSize = 1024*1024; // 1 Megabyte
 	private int maxPendingEvents = 1000;
+	private String uploadDirectory = null;
+	private long maxUploadSize = 1024L*1024*1024; // 1 Gigabyte
+	private int uploadBufferSize = 64*1024; // 64 Kilobyte
 
   // Environment config
 	private boolean webSocketsEnabled = false;
@@ -307,6 +310,12 @@ public class Configuration {
 					setMaximumRequestSize(parseInt(errorMessage, node) * 1024);
 				} else if (node.getNodeName().equalsIgnoreCase("max-formdata-size")) {
 					setMaxFormDataSize(parseInt(errorMessage, node) * 1024);
+				} else if (node.getNodeName().equalsIgnoreCase("upload-directory")) {
+					setUploadDirectory(node.getTextContent().trim());
+				} else if (node.getNodeName().equalsIgnoreCase("upload-buffer-size")) {
+					setUploadBufferSize(parseInt(errorMessage, node) * 1024);
+				} else if (node.getNodeName().equalsIgnoreCase("max-upload-size")) {
+					setMaximumUploadSize(parseInt(errorMessage, node) * 1024L);
 				} else if (node.getNodeName().equalsIgnoreCase("max-pending-events")) {
 					setMaxPendingEvents(parseInt(errorMessage, node));
 				} else if (node.getNodeName().equalsIgnoreCase("web-sockets")) {
@@ -1323,6 +1332,75 @@ public class Configuration {
 		this.maxFormDataSize = maxFormDataSize;
 	}
 
+	/**
+	 * Sets the directory in which uploaded files are stored.
+	 * <p>
+	 * Each uploaded file is streamed directly from the request into a temporary
+	 * file in this directory. When <code>null</code>, the default temporary
+	 * file directory of the JVM is used.
+	 * <p>
+	 * The default value is <code>null</code>.
+	 */
+	public void setUploadDirectory(String uploadDirectory) {
+		this.uploadDirectory = uploadDirectory;
+	}
+
+	/**
+	 * Returns the directory in which uploaded files are stored.
+	 *
+	 * @see #setUploadDirectory(String)
+	 */
+	public String getUploadDirectory() {
+		return this.uploadDirectory;
+	}
+
+	/**
+	 * Sets the size (in bytes) of the chunks in which uploaded files are
+	 * transferred to disk.
+	 * <p>
+	 * This bounds the memory used for an upload, regardless of the size of
+	 * the uploaded file.
+	 * <p>
+	 * The default value is 64kB.
+	 */
+	public void setUploadBufferSize(int uploadBufferSize) {
+		this.uploadBufferSize = uploadBufferSize;
+	}
+
+	/**
+	 * Returns the size of the chunks in which uploaded files are transferred.
+	 *
+	 * @see #setUploadBufferSize(int)
+	 */
+	public int getUploadBufferSize() {
+		return this.uploadBufferSize;
+	}
+
+	/**
+	 * Sets the maximum size (in bytes) of a file that is uploaded in chunks.
+	 * <p>
+	 * Since every chunk is a separate request, such an upload is not limited
+	 * by the maximum request size. The server preallocates the complete file
+	 * when the first chunk arrives, and refuses uploads that are larger than
+	 * this size.
+	 * <p>
+	 * The default value is 1GB.
+	 *
+	 * @see WFileDropWidget#setResumableUploads(long, int)
+	 */
+	public void setMaximumUploadSize(long maxUploadSize) {
+		this.maxUploadSize = maxUploadSize;
+	}
+
+	/**
+	 * Returns the maximum size of a file that is uploaded in chunks.
+	 *
+	 * @see #setMaximumUploadSize(long)
+	 */
+	public long getMaxUploadSize() {
+		return this.maxUploadSize;
+	}
+
 	/** Returns the maximum amount of pending events.
 	*/
 	public int getMaxPendingEvents() {
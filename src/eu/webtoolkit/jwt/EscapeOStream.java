@@ -6,7 +6,6 @@
 package eu.webtoolkit.jwt;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,47 +23,51 @@ public class EscapeOStream {
 
 	public EscapeOStream(Appendable sink) {
 		sink_ = sink;
-		mixed_ = null;
-		special_ = "";
-		ruleSets_ = new ArrayList<RuleSet>();
+		rules_ = Rules.NONE;
 	}
 
-	@SuppressWarnings("unchecked")
 	public EscapeOStream push() {
 		EscapeOStream result = new EscapeOStream(sink_);
 
-		result.ruleSets_ = (ArrayList<RuleSet>) ruleSets_.clone();
+		result.rules_ = rules_;
 
 		return result;
 	}
 
 	public void pushEscape(RuleSet rules) {
-		ruleSets_.add(rules);
-		mixRules();
+		rules_ = rules_.push(rules);
 	}
 
 	public void popEscape() {
-		ruleSets_.remove(ruleSets_.size() - 1);
-		mixRules();
+		rules_ = rules_.parent;
 	}
 
 
 	public EscapeOStream append(EscapeOStream stream) {
-		return append(stream.toString());
+		if (stream.sink_ == sink_ || !(stream.sink_ instanceof CharSequence))
+			return append(stream.toString());
+
+		CharSequence s = (CharSequence) stream.sink_;
+		try {
+			if (rules_.table == null)
+				sink_.append(s);
+			else
+				put(s, rules_.table);
+		} catch (IOException e) {
+			logger.info("append({})", s, e);
+		}
+
+		return this;
 	}
 
 	public EscapeOStream append(char c) {
 		try {
-			if (special_ == "")
-				sink_.append(c);
-			else {
-				int i = special_.indexOf(c);
+			String replacement = rules_.get(c);
 
-				if (i != -1)
-					sink_.append(mixed_.get(i).s);
-				else
-					sink_.append(c);
-			}
+			if (replacement != null)
+				sink_.append(replacement);
+			else
+				sink_.append(c);
 		} catch (IOException e) {
 			logger.info("append({})", c, e);
 		}
@@ -79,11 +82,10 @@ public class EscapeOStream {
 
 	public EscapeOStream append(String s, EscapeOStream rules) {
 		try {
-			if (rules.special_ == null) {
+			if (rules.rules_.table == null)
 				sink_.append(s);
-				return this;
-			} else
-				put(s, rules);
+			else
+				put(s, rules.rules_.table);
 		} catch (IOException e) {
 			logger.info("append({})", s, e);
 		}
@@ -113,86 +115,108 @@ public class EscapeOStream {
 
 
 	public boolean isEmpty() {
-		return sink_.toString().length() == 0;
+		if (sink_ instanceof CharSequence)
+			return ((CharSequence) sink_).length() == 0;
+		else
+			return sink_.toString().length() == 0;
 	}
 
 	public void flush() {
 	}
 
 	private Appendable sink_ = null;
-
-	private static class Entry {
-		public Entry(char c_, String s_) {
-			c = c_;
-			s = s_;
+	private Rules rules_;
+
+	/**
+	 * A stack of rule sets, with a lookup table of the replacement of each
+	 * special character.
+	 *
+	 * The rule sets that are pushed on top of a stack are kept as children,
+	 * so that the table of every combination is computed only once.
+	 */
+	private static final class Rules {
+		static final int TABLE_SIZE = 128;
+		static final Rules NONE = new Rules(null, null);
+
+		final Rules parent;
+		final String[] table;
+		private final RuleSet ruleSet;
+		private final Rules[] children = new Rules[RuleSet.values().length];
+
+		private Rules(Rules parent, RuleSet ruleSet) {
+			this.parent = parent;
+			this.ruleSet = ruleSet;
+			this.table = ruleSet != null ? mix() : null;
 		}
 
-		public Entry clone() {
-			return new Entry(c, s);
+		String get(char c) {
+			return table != null && c < TABLE_SIZE ? table[c] : null;
 		}
 
-		public char c;
-		public String s = "";
-	}
+		Rules push(RuleSet rules) {
+			int i = rules.ordinal();
 
-	private ArrayList<Entry> mixed_;
-	private String special_;
+			synchronized (children) {
+				if (children[i] == null)
+					children[i] = new Rules(this, rules);
+				return children[i];
+			}
+		}
 
-	private void mixRules() {
-		int ruleSetsSize = ruleSets_.size();
+		/*
+		 * The rule set that is pushed last is applied first: the replacements of
+		 * the rule sets that were pushed before are applied to its replacements.
+		 */
+		private String[] mix() {
+			String[] result = new String[TABLE_SIZE];
 
-		if (ruleSetsSize == 0) {
-			mixed_ = null;
-			special_ = "";
-		} else if (ruleSetsSize == 1) {
-			mixed_ = standardSets_.get(ruleSets_.get(0).ordinal());
-			special_ = standardSetsSpecial_.get(ruleSets_.get(0).ordinal());
-		} else {
-			mixed_ = new ArrayList<Entry>();
-			for (int i = ruleSetsSize - 1; i >= 0; --i) {
-				ArrayList<Entry> toMix = standardSets_.get(ruleSets_.get(i).ordinal());
+			for (Rules r = this; r.ruleSet != null; r = r.parent) {
+				Entry[] toMix = standardSets_[r.ruleSet.ordinal()];
 
-				for (int j = 0; j < mixed_.size(); ++j)
-					for (int k = 0; k < toMix.size(); ++k)
-						mixed_.get(j).s = mixed_.get(j).s.replace(toMix.get(k).c + "", toMix.get(k).s);
+				for (int c = 0; c < TABLE_SIZE; ++c)
+					if (result[c] != null)
+						for (Entry e : toMix)
+							result[c] = result[c].replace(String.valueOf(e.c), e.s);
 
-				for (int j = 0; j < toMix.size(); ++j) {
-					mixed_.add((Entry) toMix.get(j).clone());
-					special_ += toMix.get(j).c;
-				}
+				for (Entry e : toMix)
+					if (result[e.c] == null)
+						result[e.c] = e.s;
 			}
+
+			return result;
 		}
 	}
 
-	private void put(String s, EscapeOStream rules) {
-		try {
-			char [] sA = s.toCharArray();
-			char [] specialA = rules.special_.toCharArray();
-
-			for (int pos = 0; pos != -1;) {
-				int lastPos = pos;
-				pos = StringUtils.strpbrk(sA, pos, specialA);
-				if (pos != -1) {
-					char f = sA[pos];
-
-					sink_.append(s.substring(lastPos, pos));
+	private static class Entry {
+		public Entry(char c_, String s_) {
+			c = c_;
+			s = s_;
+		}
 
-					for (int i = 0; i < rules.mixed_.size(); ++i) {
-						if (rules.mixed_.get(i).c == f) {
-							sink_.append(rules.mixed_.get(i).s);
-							break;
-						}
-					}
+		public final char c;
+		public final String s;
+	}
 
-					pos = pos + 1;
+	private void put(CharSequence s, String[] table) throws IOException {
+		int lastPos = 0;
+		int length = s.length();
 
-				} else {
-					sink_.append(s.substring(lastPos));
+		for (int pos = 0; pos < length; ++pos) {
+			char f = s.charAt(pos);
+			if (f < Rules.TABLE_SIZE) {
+				String replacement = table[f];
+				if (replacement != null) {
+					sink_.append(s, lastPos, pos);
+					sink_.append(replacement);
+					lastPos = pos + 1;
 				}
 			}
-		} catch (IOException e) {
-			logger.info("put({})", s, e);
 		}
+
+		if (lastPos == 0)
+			sink_.append(s);
+		else
+			sink_.append(s, lastPos, length);
 	}
 	
 	public void clear() {
@@ -203,50 +227,18 @@ public class EscapeOStream {
 		return sink_.toString();
 	}
 
-	private ArrayList<RuleSet> ruleSets_ = new ArrayList<RuleSet>();
-
-	private static ArrayList<String> standardSetsSpecial_ = new ArrayList<String>();
-	private static ArrayList<Entry> htmlAttributeEntries_ = new ArrayList<Entry>();
-	private static ArrayList<Entry> jsStringLiteralSQuoteEntries_ = new ArrayList<Entry>();
-	private static ArrayList<Entry> jsStringLiteralDQuoteEntries_ = new ArrayList<Entry>();
-	private static ArrayList<ArrayList<Entry>> standardSets_ = new ArrayList<ArrayList<Entry>>();
-	private static ArrayList<Entry> plainTextEntries_ = new ArrayList<Entry>();
-	private static ArrayList<Entry> plainTextEntriesNewLines_ = new ArrayList<Entry>(); 
-	
-	static {
-		standardSetsSpecial_.add("&\"<");
-		standardSetsSpecial_.add("\\\n\r\t'");
-		standardSetsSpecial_.add("\\\n\r\t\"");
-		standardSetsSpecial_.add("&><");
-		standardSetsSpecial_.add("&><\n");
-
-		htmlAttributeEntries_.add(new Entry('&', "&amp;"));
-		htmlAttributeEntries_.add(new Entry('\"', "&#34;"));
-		htmlAttributeEntries_.add(new Entry('<', "&lt;"));
-		
-		plainTextEntries_.add(new Entry('&', "&amp;"));
-		plainTextEntries_.add(new Entry('>', "&gt;"));
-		plainTextEntries_.add(new Entry('<', "&lt;"));
-		
-		plainTextEntriesNewLines_.addAll(plainTextEntries_);
-		plainTextEntriesNewLines_.add(new Entry('\n', "<br />"));
-
-		jsStringLiteralSQuoteEntries_.add(new Entry('\\', "\\\\"));
-		jsStringLiteralSQuoteEntries_.add(new Entry('\n', "\\n"));
-		jsStringLiteralSQuoteEntries_.add(new Entry('\r', "\\r"));
-		jsStringLiteralSQuoteEntries_.add(new Entry('\t', "\\t"));
-		jsStringLiteralSQuoteEntries_.add(new Entry('\'', "\\'"));
-
-		jsStringLiteralDQuoteEntries_.add(new Entry('\\', "\\\\"));
-		jsStringLiteralDQuoteEntries_.add(new Entry('\n', "\\n"));
-		jsStringLiteralDQuoteEntries_.add(new Entry('\r', "\\r"));
-		jsStringLiteralDQuoteEntries_.add(new Entry('\t', "\\t"));
-		jsStringLiteralDQuoteEntries_.add(new Entry('"', "\\\""));
-
-		standardSets_.add(htmlAttributeEntries_);
-		standardSets_.add(jsStringLiteralSQuoteEntries_);
-		standardSets_.add(jsStringLiteralDQuoteEntries_);
-		standardSets_.add(plainTextEntries_);
-		standardSets_.add(plainTextEntriesNewLines_);
-	}
+	private static final Entry[][] standardSets_ = new Entry[][] {
+		// HtmlAttribute
+		{ new Entry('&', "&amp;"), new Entry('\"', "&#34;"), new Entry('<', "&lt;") },
+		// JsStringLiteralSQuote
+		{ new Entry('\\', "\\\\"), new Entry('\n', "\\n"), new Entry('\r', "\\r"), new Entry('\t', "\\t"),
+			new Entry('\'', "\\'") },
+		// JsStringLiteralDQuote
+		{ new Entry('\\', "\\\\"), new Entry('\n', "\\n"), new Entry('\r', "\\r"), new Entry('\t', "\\t"),
+			new Entry('"', "\\\"") },
+		// Plain
+		{ new Entry('&', "&amp;"), new Entry('>', "&gt;"), new Entry('<', "&lt;") },
+		// PlainTextNewLines
+		{ new Entry('&', "&amp;"), new Entry('>', "&gt;"), new Entry('<', "&lt;"), new Entry('\n', "<br />") }
+	};
 }
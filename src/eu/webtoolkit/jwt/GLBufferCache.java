@@ -0,0 +1,235 @@
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.ResourceUtils;
+
+/**
+ * Keeps track of the binary buffer data that a {@link WClientGLWidget} has sent
+ * to the client.
+ *
+ * Buffer data is served by resources that are shared by content: uploading the
+ * same data again reuses the resource (and thus its URL), which the browser may
+ * serve from its cache, since the resource's data never changes.
+ *
+ * For every GL buffer, the data that was last uploaded is remembered, so that
+ * a new upload of the same size can be sent as a change to a sub-range
+ * of the buffer.
+ *
+ * Since GL resources are usually deleted and created again when a widget is
+ * updated, buffers are also identified by their role: the order in which they
+ * were created during an update pass. A new buffer is then loaded from the
+ * (cached) data of the buffer with the same role in an earlier pass, followed
+ * by a change to a sub-range. Resources that were not used during the last two
+ * passes are removed.
+ */
+final class GLBufferCache {
+	/**
+	 * The largest fraction of a buffer that is sent as a sub-range change.
+	 */
+	static final double MAX_DELTA_FRACTION = 0.5;
+
+	private static final class Entry {
+		final WMemoryResource resource;
+		int pass;
+
+		Entry(WMemoryResource resource) {
+			this.resource = resource;
+		}
+	}
+
+	private final Map<String, Entry> resources_ = new HashMap<String, Entry>();
+	private final Map<Integer, byte[]> contents_ = new HashMap<Integer, byte[]>();
+	private final Map<Integer, Integer> roles_ = new HashMap<Integer, Integer>();
+	private final Map<Integer, byte[]> roleContents_ = new HashMap<Integer, byte[]>();
+	private int pass_;
+	private int nextRole_;
+
+	/**
+	 * Starts an update pass, in which buffers are assigned roles from 0.
+	 */
+	void beginPass() {
+		++pass_;
+		nextRole_ = 0;
+
+		for (Iterator<Entry> i = resources_.values().iterator(); i.hasNext();) {
+			if (i.next().pass < pass_ - 2)
+				i.remove();
+		}
+	}
+
+	/**
+	 * Assigns the next role of the current pass to a new buffer.
+	 */
+	void addBuffer(WGLWidget.Buffer buffer) {
+		roles_.put(buffer.getId(), nextRole_++);
+	}
+
+	/**
+	 * Returns a resource that serves the given data.
+	 */
+	WMemoryResource getResource(byte[] data) {
+		String key = ResourceUtils.createETag(data);
+
+		Entry entry = resources_.get(key);
+		if (entry == null || !Arrays.equals(entry.resource.getData(), data)) {
+			entry = new Entry(new BufferResource(data));
+			resources_.put(key, entry);
+		}
+		entry.pass = pass_;
+
+		return entry.resource;
+	}
+
+	/**
+	 * Returns the data that was last uploaded to a buffer, or <code>null</code>.
+	 */
+	byte[] getContents(WGLWidget.Buffer buffer) {
+		return contents_.get(buffer.getId());
+	}
+
+	/**
+	 * Returns the data that was last uploaded to a buffer with the same role,
+	 * or <code>null</code>.
+	 */
+	byte[] getRoleContents(WGLWidget.Buffer buffer) {
+		Integer role = roles_.get(buffer.getId());
+		return role != null ? roleContents_.get(role) : null;
+	}
+
+	/**
+	 * Remembers the data that was uploaded to a buffer.
+	 */
+	void setContents(WGLWidget.Buffer buffer, byte[] data) {
+		contents_.put(buffer.getId(), data);
+
+		Integer role = roles_.get(buffer.getId());
+		if (role != null)
+			roleContents_.put(role, data);
+	}
+
+	/**
+	 * Forgets the data of a buffer, when the buffer is only partially
+	 * updated.
+	 */
+	void removeContents(WGLWidget.Buffer buffer) {
+		contents_.remove(buffer.getId());
+	}
+
+	/**
+	 * Forgets the data and role of a buffer that is deleted.
+	 */
+	void removeBuffer(WGLWidget.Buffer buffer) {
+		contents_.remove(buffer.getId());
+		roles_.remove(buffer.getId());
+	}
+
+	/**
+	 * Forgets the data and roles of all buffers, when the client-side buffers
+	 * are discarded.
+	 */
+	void clearContents() {
+		contents_.clear();
+		roles_.clear();
+	}
+
+	/**
+	 * Removes all resources.
+	 *
+	 * Buffer data that is uploaded afterwards is served by new resources.
+	 */
+	void clearResources() {
+		resources_.clear();
+		roleContents_.clear();
+	}
+
+	/**
+	 * Returns the range of bytes in which two arrays of the same length
+	 * differ.
+	 *
+	 * Returns <code>null</code> if the arrays are equal, otherwise an array
+	 * <code>{ begin, end }</code>. The range is aligned to <code>alignment</code>
+	 * bytes.
+	 */
+	static int[] getChangedRange(byte[] previous, byte[] data, int alignment) {
+		int begin = 0;
+		while (begin < data.length && previous[begin] == data[begin])
+			++begin;
+
+		if (begin == data.length)
+			return null;
+
+		int end = data.length;
+		while (end > begin && previous[end - 1] == data[end - 1])
+			--end;
+
+		begin -= begin % alignment;
+		end = Math.min(data.length, (end + alignment - 1) / alignment * alignment);
+
+		return new int[] { begin, end };
+	}
+
+	/**
+	 * Returns the contents of a buffer as a new array.
+	 */
+	static byte[] toByteArray(ByteBuffer buffer) {
+		byte[] result = new byte[buffer.capacity()];
+		for (int i = 0; i < result.length; ++i)
+			result[i] = buffer.get(i);
+		return result;
+	}
+
+	/**
+	 * Encodes integers as an array of the given type.
+	 */
+	static byte[] toByteArray(IntBuffer buffer, WGLWidget.GLenum type) {
+		int size = getTypeSize(type);
+		ByteBuffer result = WebGLUtils.newByteBuffer(buffer.capacity() * size);
+		for (int i = 0; i < buffer.capacity(); ++i) {
+			int v = buffer.get(i);
+			switch (size) {
+			case 1: result.put((byte) v); break;
+			case 2: result.putShort((short) v); break;
+			default: result.putInt(v); break;
+			}
+		}
+		return result.array();
+	}
+
+	/**
+	 * Returns the size in bytes of an element of the given type.
+	 */
+	static int getTypeSize(WGLWidget.GLenum type) {
+		switch (type) {
+		case BYTE:
+		case UNSIGNED_BYTE:
+			return 1;
+		case SHORT:
+		case UNSIGNED_SHORT:
+			return 2;
+		default:
+			return 4;
+		}
+	}
+
+	private static class BufferResource extends WMemoryResource {
+		public BufferResource(byte[] data) {
+			super("application/octet");
+			setData(data);
+		}
+
+		@Override
+		protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
+			response.addHeader("Cache-Control", "private, max-age=31536000, immutable");
+			super.handleRequest(request, response);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package eu.webtoolkit.jwt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.pdfjet.Font;
+import com.pdfjet.PDF;
+
+/**
+ * Caches font programs and fonts used by {@link WPdfImage}.
+ *
+ * The contents of TrueType font files are kept in a process-wide cache, so
+ * that a font file is read only once, regardless of how many documents use
+ * it. The cache is validated against the file's size and modification time.
+ *
+ * Fonts that have been created (and embedded) in a {@link PDF} document are
+ * remembered per document, keyed by font file (or Base-14 font name) and size,
+ * so that all devices that paint on the same document, such as the pages
+ * rendered by a {@link eu.webtoolkit.jwt.render.WPdfRenderer}, share them.
+ * A document is not kept alive by this cache.
+ *
+ * This class is thread-safe.
+ */
+final class PdfFontCache {
+	/**
+	 * A font factory, used to create a font when it is not yet cached.
+	 */
+	interface FontFactory {
+		Font create() throws Exception;
+	}
+
+	private static final int MAX_PROGRAMS = 32;
+
+	private static final Map<String, FontProgram> programs_ = new LinkedHashMap<String, FontProgram>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FontProgram> eldest) {
+			return size() > MAX_PROGRAMS;
+		}
+	};
+
+	private static final Map<PDF, Map<String, FutureTask<Font>>> fonts_ = new WeakHashMap<PDF, Map<String, FutureTask<Font>>>();
+
+	private PdfFontCache() {
+	}
+
+	/**
+	 * Returns the contents of a font file.
+	 *
+	 * The returned array is shared and must not be modified.
+	 */
+	static byte[] getFontProgram(String fileName) throws IOException {
+		File file = new File(fileName);
+		long length = file.length();
+		long lastModified = file.lastModified();
+
+		synchronized (programs_) {
+			FontProgram p = programs_.get(fileName);
+			if (p != null && p.length == length && p.lastModified == lastModified)
+				return p.data;
+		}
+
+		byte[] data = Files.readAllBytes(file.toPath());
+
+		synchronized (programs_) {
+			programs_.put(fileName, new FontProgram(data, length, lastModified));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Returns a font for a document, creating it if needed.
+	 *
+	 * The font is identified by a <code>name</code> (a font file or Base-14
+	 * font name) and a <code>size</code>. Since a font is embedded in the
+	 * document when it is created, the same instance is returned for subsequent
+	 * requests for the same document.
+	 */
+	static Font getFont(PDF pdf, String name, double size, FontFactory factory) throws Exception {
+		String key = name + '@' + size;
+
+		Map<String, FutureTask<Font>> documentFonts;
+		synchronized (fonts_) {
+			documentFonts = fonts_.get(pdf);
+			if (documentFonts == null) {
+				documentFonts = new ConcurrentHashMap<String, FutureTask<Font>>();
+				fonts_.put(pdf, documentFonts);
+			}
+		}
+
+		/*
+		 * The font is created outside of any lock: only a thread that needs
+		 * the same font waits for it.
+		 */
+		FutureTask<Font> task = documentFonts.computeIfAbsent(key, k -> new FutureTask<Font>(() -> {
+			Font f = factory.create();
+			f.setSize(size);
+			return f;
+		}));
+		task.run();
+
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			documentFonts.remove(key, task);
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			else if (cause instanceof Error)
+				throw (Error) cause;
+			else
+				throw e;
+		}
+	}
+
+	/**
+	 * Removes all font programs from the process-wide cache.
+	 */
+	static void clearFontPrograms() {
+		synchronized (programs_) {
+			programs_.clear();
+		}
+	}
+
+	private static class FontProgram {
+		FontProgram(byte[] data, long length, long lastModified) {
+			this.data = data;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		final byte[] data;
+		final long length;
+		final long lastModified;
+	}
+}
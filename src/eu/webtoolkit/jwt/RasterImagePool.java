@@ -0,0 +1,109 @@
+package eu.webtoolkit.jwt;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pools the image buffers used by {@link WRasterPaintDevice}.
+ *
+ * Images that are no longer used by a device are kept, keyed by width,
+ * height and image type, so that a device of the same size can reuse them
+ * instead of allocating a new buffer. The pool is bounded by the total number
+ * of pixels it holds; images that do not fit are left to the garbage collector.
+ *
+ * This class is thread-safe.
+ */
+final class RasterImagePool {
+	static final long MAX_PIXELS = 16L * 1024 * 1024;
+
+	private static final Map<String, Deque<BufferedImage>> images_ = new HashMap<String, Deque<BufferedImage>>();
+	private static long pixels_ = 0;
+
+	private RasterImagePool() {
+	}
+
+	/**
+	 * Returns a fully transparent image.
+	 *
+	 * A pooled image is reused when one is available, otherwise a new image
+	 * is allocated.
+	 */
+	static BufferedImage acquire(int width, int height, int type) {
+		BufferedImage image = null;
+
+		synchronized (images_) {
+			Deque<BufferedImage> available = images_.get(getKey(width, height, type));
+			if (available != null) {
+				image = available.poll();
+				if (image != null)
+					pixels_ -= getPixels(image);
+			}
+		}
+
+		if (image == null)
+			return new BufferedImage(width, height, type);
+
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+
+		return image;
+	}
+
+	/**
+	 * Returns an image to the pool.
+	 *
+	 * The image must no longer be used by the caller.
+	 */
+	static void release(BufferedImage image) {
+		long pixels = getPixels(image);
+
+		synchronized (images_) {
+			if (pixels_ + pixels > MAX_PIXELS)
+				return;
+
+			String key = getKey(image.getWidth(), image.getHeight(), image.getType());
+			Deque<BufferedImage> available = images_.get(key);
+			if (available == null) {
+				available = new ArrayDeque<BufferedImage>();
+				images_.put(key, available);
+			}
+
+			available.push(image);
+			pixels_ += pixels;
+		}
+	}
+
+	/**
+	 * Returns the number of pixels held by the pool.
+	 */
+	static long getPooledPixels() {
+		synchronized (images_) {
+			return pixels_;
+		}
+	}
+
+	/**
+	 * Removes all images from the pool.
+	 */
+	static void clear() {
+		synchronized (images_) {
+			images_.clear();
+			pixels_ = 0;
+		}
+	}
+
+	private static long getPixels(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight();
+	}
+
+	private static String getKey(int width, int height, int type) {
+		return width + "x" + height + "/" + type;
+	}
+}
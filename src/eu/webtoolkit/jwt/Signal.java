@@ -5,8 +5,6 @@
  */
 package eu.webtoolkit.jwt;
 
-import java.util.ArrayList;
-
 /**
  * A signal that propagates events to listeners.
  * <p>
@@ -62,10 +60,13 @@ public class Signal extends AbstractSignal {
 		if (impl == null)
 			return;
 
-		ArrayList<SignalImpl.Listener> listeners = impl.getListeners();
+		SignalImpl.Listeners listeners = impl.getListenerSnapshot();
 
-		for (SignalImpl.Listener listener : listeners)
-			((Listener) (listener)).trigger();
+		for (int i = 0; i < listeners.size(); ++i) {
+			SignalImpl.Listener listener = listeners.get(i);
+			if (listener != null)
+				((Listener) listener).trigger();
+		}
 	}
 
 	@Override
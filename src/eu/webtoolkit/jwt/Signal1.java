@@ -5,8 +5,6 @@
  */
 package eu.webtoolkit.jwt;
 
-import java.util.ArrayList;
-
 /**
  * A signal that propagates events to listeners, and is capable of passing 1 argument.
  * <p>
@@ -80,10 +78,13 @@ public class Signal1<A1> extends AbstractSignal {
 		if (impl == null)
 			return;
 
-		ArrayList<SignalImpl.Listener> listeners = impl.getListeners();
+		SignalImpl.Listeners listeners = impl.getListenerSnapshot();
 
-		for (SignalImpl.Listener listener : listeners)
-			((Listener) (listener)).trigger(arg);
+		for (int i = 0; i < listeners.size(); ++i) {
+			SignalImpl.Listener listener = listeners.get(i);
+			if (listener != null)
+				((Listener) listener).trigger(arg);
+		}
 	}
 
 	@Override
@@ -5,8 +5,6 @@
  */
 package eu.webtoolkit.jwt;
 
-import java.util.ArrayList;
-
 /**
  * A signal that propagates events to listeners, and is capable of passing 2 argument.
  * <p>
@@ -135,10 +133,13 @@ public class Signal2<A1, A2> extends AbstractSignal {
 		if (impl == null)
 			return;
 
-		ArrayList<SignalImpl.Listener> listeners = impl.getListeners();
+		SignalImpl.Listeners listeners = impl.getListenerSnapshot();
 
-		for (SignalImpl.Listener listener : listeners)
-			((Listener) (listener)).trigger(arg1, arg2);
+		for (int i = 0; i < listeners.size(); ++i) {
+			SignalImpl.Listener listener = listeners.get(i);
+			if (listener != null)
+				((Listener) listener).trigger(arg1, arg2);
+		}
 	}
 
 	@Override
@@ -7,8 +7,8 @@ package eu.webtoolkit.jwt;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import eu.webtoolkit.jwt.AbstractSignal.Connection;
@@ -27,23 +27,72 @@ class SignalImpl {
 		SignalImpl signal;
 	}
 
-	private final ArrayList<Listener> observerCatalog = new ArrayList<Listener>();
-	private final ArrayList<WeakReference<Listener>> weakObserverCatalog = new ArrayList<WeakReference<Listener>>();
+	/*
+	 * An immutable snapshot of the listeners of a signal: the listeners without
+	 * owner, followed by the (weakly referenced) listeners with an owner.
+	 *
+	 * Adding or removing a listener replaces the snapshot of the signal, so
+	 * that emission iterates a snapshot without copying it, and is not
+	 * affected by listeners that are added or removed meanwhile.
+	 */
+	static final class Listeners {
+		private final SignalImpl signal;
+		private final Listener[] observers;
+		private final WeakReference<Listener>[] weakObservers;
+
+		private Listeners(SignalImpl signal, Listener[] observers, WeakReference<Listener>[] weakObservers) {
+			this.signal = signal;
+			this.observers = observers;
+			this.weakObservers = weakObservers;
+		}
+
+		int size() {
+			return observers.length + weakObservers.length;
+		}
+
+		/*
+		 * Returns a listener, or null if it has been garbage collected, in
+		 * which case the cleared references are removed from the signal.
+		 */
+		Listener get(int i) {
+			if (i < observers.length)
+				return observers[i];
+
+			Listener result = weakObservers[i - observers.length].get();
+			if (result == null && signal != null && signal.listeners == this)
+				signal.removeClearedListeners();
+
+			return result;
+		}
+	}
+
+	private static final Listener[] NO_OBSERVERS = new Listener[0];
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final WeakReference<Listener>[] NO_WEAK_OBSERVERS = new WeakReference[0];
+	private static final Listeners NO_LISTENERS = new Listeners(null, NO_OBSERVERS, NO_WEAK_OBSERVERS);
+
+	private Listeners listeners = NO_LISTENERS;
 	
 	private Map<Listener, Object> wrappedListeners_ = null;
 	private Map<WeakReference<Listener>, WeakReference<Object>> weakWrappedListeners_ = null;
 
-	private static ArrayList<Listener> emptyList = new ArrayList<Listener>();
 	private boolean blocked = false;
 
 	public Connection addListener(WObject listenerOwner, Listener listener) {
 		if (listenerOwner != null) {
-			weakObserverCatalog.add(new WeakReference<Listener>(listener));
+			WeakReference<Listener>[] weakObservers = Arrays.copyOf(listeners.weakObservers,
+					listeners.weakObservers.length + 1);
+			weakObservers[weakObservers.length - 1] = new WeakReference<Listener>(listener);
+			listeners = new Listeners(this, listeners.observers, weakObservers);
+
 			if (listenerOwner.listenerSignalsPairs == null)
 				listenerOwner.listenerSignalsPairs = new ArrayList<ListenerSignalPair>();
 			listenerOwner.listenerSignalsPairs.add(new ListenerSignalPair(listener, this));
-		} else
-			observerCatalog.add(listener);
+		} else {
+			Listener[] observers = Arrays.copyOf(listeners.observers, listeners.observers.length + 1);
+			observers[observers.length - 1] = listener;
+			listeners = new Listeners(this, observers, listeners.weakObservers);
+		}
 
 		return new Connection(this, listener);
 	}
@@ -65,38 +114,68 @@ class SignalImpl {
 	}
 
 	public void removeListener(Listener listener) {
-		for (WeakReference<Listener> weakObserver : weakObserverCatalog) {
-			if (listener == weakObserver.get()) {
-				weakObserverCatalog.remove(weakObserver);
+		Listener[] observers = listeners.observers;
+		WeakReference<Listener>[] weakObservers = listeners.weakObservers;
+
+		for (int i = 0; i < weakObservers.length; ++i) {
+			if (listener == weakObservers[i].get()) {
+				weakObservers = remove(weakObservers, i);
 				break;
 			}
 		}
-		observerCatalog.remove(listener);
+
+		for (int i = 0; i < observers.length; ++i) {
+			if (listener == observers[i]) {
+				observers = remove(observers, i);
+				break;
+			}
+		}
+
+		if (observers != listeners.observers || weakObservers != listeners.weakObservers)
+			listeners = new Listeners(this, observers, weakObservers);
+	}
+
+	/*
+	 * Returns the current listeners, which are not affected by later changes.
+	 */
+	Listeners getListenerSnapshot() {
+		return blocked ? NO_LISTENERS : listeners;
 	}
-	
-	@SuppressWarnings("unchecked")
-	protected ArrayList<Listener> getListeners() {
-		if (blocked)
-			return emptyList;
 
-		ArrayList<Listener> result = (ArrayList<Listener>) observerCatalog.clone();
+	protected ArrayList<Listener> getListeners() {
+		Listeners snapshot = getListenerSnapshot();
 
-		Iterator<WeakReference<Listener>> i = weakObserverCatalog.iterator();
-		while (i.hasNext()) {
-			WeakReference<Listener> ref = i.next();
-			Listener listener = ref.get();
+		ArrayList<Listener> result = new ArrayList<Listener>(snapshot.size());
+		for (int i = 0; i < snapshot.size(); ++i) {
+			Listener listener = snapshot.get(i);
 			if (listener != null)
 				result.add(listener);
-			else {
-				i.remove();
-			}
 		}
 
 		return result;
 	}
 
 	protected int getListenerCount() {
-		return observerCatalog.size() + weakObserverCatalog.size();
+		return listeners.size();
+	}
+
+	private void removeClearedListeners() {
+		WeakReference<Listener>[] weakObservers = listeners.weakObservers;
+		WeakReference<Listener>[] result = Arrays.copyOf(weakObservers, weakObservers.length);
+
+		int count = 0;
+		for (WeakReference<Listener> ref : weakObservers)
+			if (ref.get() != null)
+				result[count++] = ref;
+
+		if (count != weakObservers.length)
+			listeners = new Listeners(this, listeners.observers, Arrays.copyOf(result, count));
+	}
+
+	private static <T> T[] remove(T[] array, int i) {
+		T[] result = Arrays.copyOf(array, array.length - 1);
+		System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+		return result;
 	}
 
 	public boolean isBlocked() {
@@ -108,12 +187,12 @@ class SignalImpl {
 	}
 
 	public boolean hasListener(Listener listener) {
-		for (WeakReference<Listener> weakObserver : weakObserverCatalog) {
+		for (WeakReference<Listener> weakObserver : listeners.weakObservers) {
 			if (listener == weakObserver.get())
 				return true;
 		}
 
-		for (Listener observer : observerCatalog) {
+		for (Listener observer : listeners.observers) {
 			if (listener == observer)
 				return true;
 		}
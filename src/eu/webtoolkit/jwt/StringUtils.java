@@ -6,8 +6,6 @@
 package eu.webtoolkit.jwt;
 
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -77,7 +75,7 @@ public class StringUtils {
 		else if (data == null)
 			return WString.Empty;
 		else if (data instanceof Number)
-			return new WString(NumberFormat.getInstance(LocaleUtils.getCurrentLocale()).format(data));
+			return new WString(LocaleUtils.toString(LocaleUtils.getCurrentLocale(), (Number) data));
 		else if (data instanceof WDate) {
 			WDate d = (WDate) data;
 			return new WString(d.toString("dd/MM/yyyy"));
@@ -102,7 +100,7 @@ public class StringUtils {
 			return new WString(d.toString(format));
 		} else if (data instanceof Number) {
 			Number d = (Number) data;
-			return new WString(new DecimalFormat(format).format(d));
+			return new WString(LocaleUtils.toString(format, d));
 		} else
 			return asString(data);
 	}
@@ -29,5 +29,9 @@ class Time {
 		return (int) (this.time - other.time);
 	}
 
+	long getMillis() {
+		return time;
+	}
+
 	private long time;
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * The active timers of an application, ordered by their deadline.
+ *
+ * A timer is scheduled again whenever its deadline changes. Stopping or
+ * rescheduling a timer only cancels its entry, which is discarded when it
+ * reaches the head of the queue, or when cancelled entries outnumber the
+ * active ones. Scheduling and popping an expired timer are thus O(log n),
+ * where n is the number of active timers.
+ */
+final class TimerQueue {
+	final class Entry implements Comparable<Entry> {
+		private final WTimer timer_;
+		private final long deadline_;
+		private final long sequence_;
+		private boolean cancelled_;
+
+		private Entry(WTimer timer, long deadline, long sequence) {
+			timer_ = timer;
+			deadline_ = deadline;
+			sequence_ = sequence;
+		}
+
+		void cancel() {
+			if (!cancelled_) {
+				cancelled_ = true;
+				--active_;
+				if (queue_.size() > 2 * active_ + 16)
+					compact();
+			}
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (deadline_ != other.deadline_)
+				return deadline_ < other.deadline_ ? -1 : 1;
+			return Long.compare(sequence_, other.sequence_);
+		}
+	}
+
+	private PriorityQueue<Entry> queue_ = new PriorityQueue<Entry>();
+	private int active_;
+	private long sequence_;
+
+	/*
+	 * Schedules a timer to expire at a deadline (in milliseconds since the
+	 * epoch). The returned entry must be cancelled when the timer is stopped
+	 * or rescheduled.
+	 */
+	Entry schedule(WTimer timer, long deadline) {
+		Entry result = new Entry(timer, deadline, sequence_++);
+		queue_.add(result);
+		++active_;
+		return result;
+	}
+
+	/*
+	 * Removes and returns the timers that expired at the given time, in the
+	 * order of their deadline.
+	 */
+	List<WTimer> popExpired(long now) {
+		List<WTimer> result = new ArrayList<WTimer>();
+		for (;;) {
+			Entry e = queue_.peek();
+			if (e == null || e.deadline_ > now)
+				break;
+			queue_.poll();
+			if (!e.cancelled_) {
+				e.cancelled_ = true;
+				--active_;
+				result.add(e.timer_);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the number of scheduled timers.
+	 */
+	int getActiveCount() {
+		return active_;
+	}
+
+	private void compact() {
+		PriorityQueue<Entry> queue = new PriorityQueue<Entry>(Math.max(1, active_));
+		for (Entry e : queue_)
+			if (!e.cancelled_)
+				queue.add(e);
+		queue_ = queue;
+	}
+}
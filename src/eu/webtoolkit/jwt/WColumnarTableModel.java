@@ -0,0 +1,586 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table model that stores its data column by column.
+ * <p>
+ *
+ * Unlike {@link WStandardItemModel}, which keeps a {@link WStandardItem} for
+ * every cell, this model keeps every column as a single array of values of the
+ * column's {@link ColumnType}: an <code>int[]</code>, <code>long[]</code> or
+ * <code>double[]</code> for numbers, a {@link BitSet} for booleans, and a
+ * dictionary of distinct values plus an <code>int[]</code> of codes for
+ * strings. This makes the model suitable for large tables: a cell of a number
+ * column takes no more memory than the number itself.
+ * <p>
+ * The values are returned as {@link ItemDataRole#Display} and
+ * {@link ItemDataRole#Edit} data, boxed as {@link Integer}, {@link Long},
+ * {@link Double}, {@link String} or {@link Boolean}, so that
+ * {@link WSortFilterProxyModel} sorts them by value, and charts can plot them
+ * directly. Data for other roles (such as {@link ItemDataRole#StyleClass}) can
+ * be set on individual cells, and is kept in a sparse map.
+ * <p>
+ * Rows are added in bulk using {@link #appendRows(List)}. Updates to values
+ * can be grouped between {@link #beginUpdate()} and {@link #endUpdate()}, in
+ * which case the model emits a single {@link WAbstractItemModel#dataChanged()
+ * dataChanged()} signal for every range of consecutive changed rows, rather than
+ * a signal per cell.
+ * <p>
+ * The model does not support inserting or removing rows or columns through
+ * the generic {@link WAbstractItemModel} interface.
+ */
+public class WColumnarTableModel extends WAbstractTableModel {
+	/**
+	 * Enumeration for the type of a column.
+	 */
+	public enum ColumnType {
+		/** 32-bit integer values, returned as {@link Integer}. */
+		Int,
+		/** 64-bit integer values, returned as {@link Long}. */
+		Long,
+		/** Floating point values, returned as {@link Double}. */
+		Double,
+		/** String values, stored using a dictionary of distinct values. */
+		String,
+		/** Boolean values, returned as {@link Boolean}. */
+		Boolean
+	}
+
+	private List<Column> columns_ = new ArrayList<Column>();
+	private List<Object> headers_ = new ArrayList<Object>();
+	private Map<ItemDataRole, Map<Long, Object>> roleData_ = new HashMap<ItemDataRole, Map<Long, Object>>();
+	private int rowCount_ = 0;
+	private int capacity_ = 0;
+
+	private int updateLevel_ = 0;
+	private BitSet changedRows_ = new BitSet();
+	private int changedFirstColumn_ = Integer.MAX_VALUE;
+	private int changedLastColumn_ = -1;
+
+	/**
+	 * Creates a new model without columns.
+	 *
+	 * @see #addColumn(ColumnType, Object)
+	 */
+	public WColumnarTableModel() {
+		super();
+	}
+
+	/**
+	 * Adds a column.
+	 * <p>
+	 * Existing rows have a <code>null</code> value in the new column.
+	 *
+	 * @param type the type of the values in the column
+	 * @param header the header data ({@link ItemDataRole#Display})
+	 * @return the index of the new column
+	 */
+	public int addColumn(ColumnType type, Object header) {
+		int column = columns_.size();
+
+		beginInsertColumns(null, column, column);
+		Column c = createColumn(type);
+		c.resize(capacity_);
+		for (int row = 0; row < rowCount_; ++row)
+			c.set(row, null);
+		columns_.add(c);
+		headers_.add(header);
+		endInsertColumns();
+
+		return column;
+	}
+
+	/**
+	 * Returns the type of a column.
+	 */
+	public ColumnType getColumnType(int column) {
+		return columns_.get(column).getType();
+	}
+
+	@Override
+	public int getColumnCount(WModelIndex parent) {
+		return parent == null ? columns_.size() : 0;
+	}
+
+	@Override
+	public int getRowCount(WModelIndex parent) {
+		return parent == null ? rowCount_ : 0;
+	}
+
+	/**
+	 * Reserves storage for a number of rows.
+	 * <p>
+	 * This avoids growing the column arrays repeatedly when the number of
+	 * rows that will be appended is known in advance.
+	 */
+	public void reserve(int rows) {
+		if (rows > capacity_) {
+			capacity_ = rows;
+			for (Column c : columns_)
+				c.resize(capacity_);
+		}
+	}
+
+	/**
+	 * Appends a row.
+	 *
+	 * @see #appendRows(List)
+	 */
+	public void appendRow(Object... values) {
+		List<Object[]> rows = new ArrayList<Object[]>(1);
+		rows.add(values);
+		appendRows(rows);
+	}
+
+	/**
+	 * Appends rows.
+	 * <p>
+	 * Each row holds a value for every column, in column order; a row that is
+	 * shorter leaves <code>null</code> values in the remaining columns. Values
+	 * are converted as with {@link #setValue(int, int, Object)}.
+	 * <p>
+	 * All rows are inserted with a single
+	 * {@link WAbstractItemModel#rowsInserted() rowsInserted()} signal. The
+	 * values are converted before the rows are inserted: if a value cannot
+	 * be converted, none of the rows are inserted and no signal is emitted.
+	 *
+	 * @throws IllegalArgumentException if a value cannot be converted to the
+	 *         type of its column.
+	 */
+	public void appendRows(List<Object[]> rows) {
+		if (rows.isEmpty())
+			return;
+
+		int first = rowCount_;
+		int last = first + rows.size() - 1;
+
+		/*
+		 * Values are stored beyond the current row count, where they are
+		 * not yet part of the model.
+		 */
+		if (last >= capacity_)
+			reserve(Math.max(last + 1, capacity_ + capacity_ / 2));
+		for (int i = 0; i < rows.size(); ++i) {
+			Object[] values = rows.get(i);
+			for (int column = 0; column < columns_.size(); ++column) {
+				Object value = column < values.length ? values[column] : null;
+				if (!columns_.get(column).set(first + i, value))
+					throw new IllegalArgumentException("Cannot convert '" + value + "' to "
+							+ columns_.get(column).getType());
+			}
+		}
+
+		beginInsertRows(null, first, last);
+		rowCount_ = last + 1;
+		endInsertRows();
+	}
+
+	/**
+	 * Returns a value.
+	 * <p>
+	 * This is the same as the {@link ItemDataRole#Display} data of the cell.
+	 */
+	public Object getValue(int row, int column) {
+		checkRow(row);
+		return columns_.get(column).get(row);
+	}
+
+	/**
+	 * Sets a value.
+	 * <p>
+	 * A value of another type is converted to the type of the column: numbers
+	 * are narrowed or widened, and strings are parsed. A <code>null</code>
+	 * value clears the cell.
+	 *
+	 * @throws IllegalArgumentException if the value cannot be converted to the
+	 *         type of the column.
+	 */
+	public void setValue(int row, int column, Object value) {
+		checkRow(row);
+		if (!columns_.get(column).set(row, value))
+			throw new IllegalArgumentException("Cannot convert '" + value + "' to "
+					+ columns_.get(column).getType());
+		changed(row, column);
+	}
+
+	@Override
+	public Object getData(WModelIndex index, ItemDataRole role) {
+		if (role.equals(ItemDataRole.Display) || role.equals(ItemDataRole.Edit))
+			return columns_.get(index.getColumn()).get(index.getRow());
+
+		Map<Long, Object> data = roleData_.get(role);
+		return data != null ? data.get(getKey(index.getRow(), index.getColumn())) : null;
+	}
+
+	/**
+	 * Returns the flags for an item.
+	 * <p>
+	 * All cells are selectable and editable.
+	 */
+	@Override
+	public EnumSet<ItemFlag> getFlags(WModelIndex index) {
+		return EnumSet.of(ItemFlag.Selectable, ItemFlag.Editable);
+	}
+
+	/**
+	 * Sets data.
+	 * <p>
+	 * {@link ItemDataRole#Display} and {@link ItemDataRole#Edit} data set the
+	 * value of the cell (see {@link #setValue(int, int, Object)}). This returns
+	 * <code>false</code> if the value cannot be converted to the type of the
+	 * column. Data for other roles is stored for the individual cell.
+	 */
+	@Override
+	public boolean setData(WModelIndex index, Object value, ItemDataRole role) {
+		if (index == null)
+			return false;
+
+		int row = index.getRow();
+		int column = index.getColumn();
+
+		if (role.equals(ItemDataRole.Display) || role.equals(ItemDataRole.Edit)) {
+			if (!columns_.get(column).set(row, value))
+				return false;
+		} else {
+			Map<Long, Object> data = roleData_.get(role);
+			if (value != null) {
+				if (data == null) {
+					data = new HashMap<Long, Object>();
+					roleData_.put(role, data);
+				}
+				data.put(getKey(row, column), value);
+			} else if (data != null) {
+				data.remove(getKey(row, column));
+			}
+		}
+
+		changed(row, column);
+		return true;
+	}
+
+	@Override
+	public Object getHeaderData(int section, Orientation orientation, ItemDataRole role) {
+		if (orientation == Orientation.Horizontal && role.equals(ItemDataRole.Display))
+			return headers_.get(section);
+		else
+			return super.getHeaderData(section, orientation, role);
+	}
+
+	@Override
+	public boolean setHeaderData(int section, Orientation orientation, Object value, ItemDataRole role) {
+		if (orientation == Orientation.Horizontal
+				&& (role.equals(ItemDataRole.Display) || role.equals(ItemDataRole.Edit))) {
+			headers_.set(section, value);
+			headerDataChanged().trigger(orientation, section, section);
+			return true;
+		} else
+			return super.setHeaderData(section, orientation, value, role);
+	}
+
+	/**
+	 * Starts grouping changes.
+	 * <p>
+	 * Until the matching {@link #endUpdate()}, changes to the data do not
+	 * emit {@link WAbstractItemModel#dataChanged() dataChanged()}. Calls may
+	 * be nested.
+	 */
+	public void beginUpdate() {
+		++updateLevel_;
+	}
+
+	/**
+	 * Ends grouping changes.
+	 * <p>
+	 * When the outermost group ends, a {@link WAbstractItemModel#dataChanged()
+	 * dataChanged()} signal is emitted for every range of consecutive rows in
+	 * which data changed. Each range spans the columns from the first to the
+	 * last column that changed in any row.
+	 */
+	public void endUpdate() {
+		if (updateLevel_ == 0)
+			throw new IllegalStateException("endUpdate() without beginUpdate()");
+
+		if (--updateLevel_ == 0)
+			flushChanges();
+	}
+
+	private void changed(int row, int column) {
+		if (updateLevel_ == 0) {
+			WModelIndex index = getIndex(row, column, null);
+			dataChanged().trigger(index, index);
+		} else {
+			changedRows_.set(row);
+			changedFirstColumn_ = Math.min(changedFirstColumn_, column);
+			changedLastColumn_ = Math.max(changedLastColumn_, column);
+		}
+	}
+
+	private void flushChanges() {
+		for (int first = changedRows_.nextSetBit(0); first >= 0;) {
+			int last = changedRows_.nextClearBit(first) - 1;
+			dataChanged().trigger(getIndex(first, changedFirstColumn_, null),
+					getIndex(last, changedLastColumn_, null));
+			first = changedRows_.nextSetBit(last + 1);
+		}
+
+		changedRows_.clear();
+		changedFirstColumn_ = Integer.MAX_VALUE;
+		changedLastColumn_ = -1;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= rowCount_)
+			throw new IndexOutOfBoundsException("Row " + row + " out of range [0, " + rowCount_ + ")");
+	}
+
+	private static long getKey(int row, int column) {
+		return ((long) column << 32) | (row & 0xFFFFFFFFL);
+	}
+
+	private static Column createColumn(ColumnType type) {
+		switch (type) {
+		case Int:
+			return new IntColumn();
+		case Long:
+			return new LongColumn();
+		case Double:
+			return new DoubleColumn();
+		case String:
+			return new StringColumn();
+		default:
+			return new BooleanColumn();
+		}
+	}
+
+	/*
+	 * Storage for the values of a column. Number columns keep a bit for every
+	 * row that holds null, allocated only once a null value is stored.
+	 */
+	private static abstract class Column {
+		private BitSet nulls_;
+
+		abstract ColumnType getType();
+
+		abstract void resize(int capacity);
+
+		abstract Object getValue(int row);
+
+		/*
+		 * Stores a non-null value, returns false if it cannot be converted.
+		 */
+		abstract boolean setValue(int row, Object value);
+
+		Object get(int row) {
+			if (nulls_ != null && nulls_.get(row))
+				return null;
+			else
+				return getValue(row);
+		}
+
+		boolean set(int row, Object value) {
+			if (value == null) {
+				if (nulls_ == null)
+					nulls_ = new BitSet();
+				nulls_.set(row);
+				return true;
+			}
+
+			try {
+				if (!setValue(row, value))
+					return false;
+			} catch (NumberFormatException e) {
+				return false;
+			}
+
+			if (nulls_ != null)
+				nulls_.clear(row);
+			return true;
+		}
+
+		static Number toNumber(Object value) {
+			if (value instanceof Number)
+				return (Number) value;
+			else if (value instanceof CharSequence || value instanceof WString)
+				return Double.valueOf(value.toString().trim());
+			else
+				return null;
+		}
+	}
+
+	private static class IntColumn extends Column {
+		private int[] values_ = new int[0];
+
+		ColumnType getType() {
+			return ColumnType.Int;
+		}
+
+		void resize(int capacity) {
+			values_ = Arrays.copyOf(values_, capacity);
+		}
+
+		Object getValue(int row) {
+			return values_[row];
+		}
+
+		boolean setValue(int row, Object value) {
+			if (value instanceof CharSequence || value instanceof WString) {
+				values_[row] = Integer.parseInt(value.toString().trim());
+				return true;
+			}
+
+			Number n = toNumber(value);
+			if (n == null)
+				return false;
+			values_[row] = n.intValue();
+			return true;
+		}
+	}
+
+	private static class LongColumn extends Column {
+		private long[] values_ = new long[0];
+
+		ColumnType getType() {
+			return ColumnType.Long;
+		}
+
+		void resize(int capacity) {
+			values_ = Arrays.copyOf(values_, capacity);
+		}
+
+		Object getValue(int row) {
+			return values_[row];
+		}
+
+		boolean setValue(int row, Object value) {
+			if (value instanceof CharSequence || value instanceof WString) {
+				values_[row] = Long.parseLong(value.toString().trim());
+				return true;
+			}
+
+			Number n = toNumber(value);
+			if (n == null)
+				return false;
+			values_[row] = n.longValue();
+			return true;
+		}
+	}
+
+	private static class DoubleColumn extends Column {
+		private double[] values_ = new double[0];
+
+		ColumnType getType() {
+			return ColumnType.Double;
+		}
+
+		void resize(int capacity) {
+			values_ = Arrays.copyOf(values_, capacity);
+		}
+
+		Object getValue(int row) {
+			return values_[row];
+		}
+
+		boolean setValue(int row, Object value) {
+			Number n = toNumber(value);
+			if (n == null)
+				return false;
+			values_[row] = n.doubleValue();
+			return true;
+		}
+	}
+
+	private static class BooleanColumn extends Column {
+		private BitSet values_ = new BitSet();
+
+		ColumnType getType() {
+			return ColumnType.Boolean;
+		}
+
+		void resize(int capacity) {
+			if (capacity < values_.length())
+				values_.clear(capacity, values_.length());
+		}
+
+		Object getValue(int row) {
+			return values_.get(row);
+		}
+
+		boolean setValue(int row, Object value) {
+			if (value instanceof Boolean)
+				values_.set(row, (Boolean) value);
+			else if (value instanceof CharSequence || value instanceof WString) {
+				String s = value.toString().trim();
+				if (s.equalsIgnoreCase("true"))
+					values_.set(row);
+				else if (s.equalsIgnoreCase("false"))
+					values_.clear(row);
+				else
+					return false;
+			} else
+				return false;
+			return true;
+		}
+	}
+
+	/*
+	 * Stores strings as codes into a dictionary of distinct values; code -1 is
+	 * null. Values that are no longer used remain in the dictionary.
+	 */
+	private static class StringColumn extends Column {
+		private int[] codes_ = new int[0];
+		private List<String> dictionary_ = new ArrayList<String>();
+		private Map<String, Integer> lookup_ = new HashMap<String, Integer>();
+
+		ColumnType getType() {
+			return ColumnType.String;
+		}
+
+		void resize(int capacity) {
+			int size = codes_.length;
+			codes_ = Arrays.copyOf(codes_, capacity);
+			if (capacity > size)
+				Arrays.fill(codes_, size, capacity, -1);
+		}
+
+		Object get(int row) {
+			int code = codes_[row];
+			return code < 0 ? null : dictionary_.get(code);
+		}
+
+		Object getValue(int row) {
+			return get(row);
+		}
+
+		boolean set(int row, Object value) {
+			if (value == null) {
+				codes_[row] = -1;
+				return true;
+			} else
+				return setValue(row, value);
+		}
+
+		boolean setValue(int row, Object value) {
+			String s = StringUtils.asString(value).toString();
+			Integer code = lookup_.get(s);
+			if (code == null) {
+				code = dictionary_.size();
+				dictionary_.add(s);
+				lookup_.put(s, code);
+			}
+			codes_[row] = code;
+			return true;
+		}
+	}
+}
@@ -6,8 +6,6 @@
 package eu.webtoolkit.jwt;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import org.slf4j.Logger;
@@ -15,7 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
-import eu.webtoolkit.jwt.utils.StreamUtils;
+import eu.webtoolkit.jwt.utils.ResourceUtils;
 
 /**
  * A resource which streams data from a local file.
@@ -88,24 +86,27 @@ public class WFileResource extends WResource {
 	private String mimeType_;
 	private String fileName_;
 
+	/**
+	 * Handles a request.
+	 * <p>
+	 * The file is served with <code>ETag</code> and <code>Last-Modified</code>
+	 * validators derived from its size and modification time, and supports
+	 * conditional and byte range requests (see {@link ResourceUtils}).
+	 */
 	@Override
 	public void handleRequest(WebRequest request, WebResponse response) {
-		response.setContentType(mimeType_);
-
 		try {
 			File f = new File(fileName_);
-			FileInputStream fis = new FileInputStream(f);
-			try {
-				StreamUtils.copy(fis, response.getOutputStream());
-				response.getOutputStream().flush();
-			} catch (IOException e) {
-				logger.info("IOException, {}", fileName_, e);
-			} finally {
-				StreamUtils.closeQuietly(fis);
+			if (!f.isFile()) {
+				logger.info("Could not find file: {}", fileName_);
+				response.setStatus(404);
+				return;
 			}
-		} catch (FileNotFoundException e) {
-			System.err.println("Could not find file: " + fileName_);
-			response.setStatus(404);
+
+			ResourceUtils.serveFile(request, response, mimeType_, f);
+			response.getOutputStream().flush();
+		} catch (IOException e) {
+			logger.info("IOException, {}", fileName_, e);
 		}
 	}
 }
@@ -9,6 +9,7 @@ import java.io.IOException;
 
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.ResourceUtils;
 
 /**
  * A resource which streams data from memory.
@@ -37,7 +38,7 @@ public class WMemoryResource extends WResource {
 	 * You must call {@link #setData(byte[])} before using the resource.
 	 */
 	public WMemoryResource(String mimeType) {
-		this.data_ = null;
+		this.content_ = null;
 		this.mimeType_ = mimeType;
 	}
 
@@ -51,14 +52,15 @@ public class WMemoryResource extends WResource {
 	 * @param data
 	 */
 	public void setData(byte[] data) {
-		this.data_ = data;
+		this.content_ = data != null ? new Content(data) : null;
 		setChanged();
 	}
 
 	void setData(char[] data) {
-		this.data_ = new byte[data.length];
+		byte[] bytes = new byte[data.length];
 		for (int i = 0; i < data.length; ++i)
-			data_[i] = (byte) data[i];
+			bytes[i] = (byte) data[i];
+		this.content_ = new Content(bytes);
 	}
 	
 	/**
@@ -83,7 +85,7 @@ public class WMemoryResource extends WResource {
 	}
 
 	private String mimeType_;
-	private volatile byte[] data_;
+	private volatile Content content_;
 
 	/**
 	 * Returns the data.
@@ -91,14 +93,46 @@ public class WMemoryResource extends WResource {
 	 * @return the data.
 	 */
 	public byte[] getData() {
-		return data_;
+		Content content = content_;
+		return content != null ? content.data : null;
 	}
 
+	/**
+	 * Handles a request.
+	 * <p>
+	 * The data is served with an <code>ETag</code> validator computed from the
+	 * data, and a <code>Last-Modified</code> validator set to the time at
+	 * which the data was set, and supports conditional and byte range requests
+	 * (see {@link ResourceUtils}).
+	 */
 	@Override
 	protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
-		response.setContentType(mimeType_);
-		byte[] data = data_;
-		if (data != null)
-			response.getOutputStream().write(data);
+		Content content = content_;
+		if (content != null)
+			ResourceUtils.serveData(request, response, mimeType_, content.data, content.getETag(), content.lastModified);
+		else
+			response.setContentType(mimeType_);
+	}
+
+	/*
+	 * The data, with its validators. The ETag is only computed when the data
+	 * is first served, since data may be replaced several times before that.
+	 */
+	private static final class Content {
+		final byte[] data;
+		final long lastModified;
+		private volatile String etag;
+
+		Content(byte[] data) {
+			this.data = data;
+			this.lastModified = System.currentTimeMillis();
+		}
+
+		String getETag() {
+			String result = etag;
+			if (result == null)
+				etag = result = ResourceUtils.createETag(data);
+			return result;
+		}
 	}
 }
@@ -3,8 +3,6 @@ package eu.webtoolkit.jwt;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
@@ -225,35 +223,37 @@ public class WPdfImage extends WResource implements WPaintDevice {
 		processChangeFlags();
 
 		Image image = null;
-		if (imgInfo.hasDataUri()) {
-			String imgUri = imgInfo.getDataUri();
-			DataUri uri = new DataUri(imgUri);
-			try {
-				// we do not import the ImageUtils class from utils because we also use another ImageUtils
-				ByteArrayInputStream stream = eu.webtoolkit.jwt.utils.ImageUtils.getByteArrayInputStream(uri.data);
-
-				if ("image/png".equals(uri.mimeType))
-					image = new Image(this.pdf, stream, ImageType.PNG);
-				else if ("image/jpeg".equals(uri.mimeType))
-					image = new Image(this.pdf, stream, ImageType.JPG);
-				else if ("image/bmp".equals(uri.mimeType))
-					image = new Image(this.pdf, stream, ImageType.BMP);
-			} catch (Exception e) {
-				logger.info("Error converting data URI to image", e);
-				logger.trace("Data URI is {}", imgUri, e);
-			}
-		} else {
-			String imgPath = imgInfo.getFilePath();
-			String mimeType = ImageUtils.identifyMimeType(imgPath);
-			try {
-				if ("image/png".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.PNG);
-				else if ("image/jpeg".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.JPG);
-				else if ("image/bmp".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.BMP);
-			} catch (Exception e) {
-				logger.info("Error creating image from {}", imgPath, e);
+		synchronized (this.pdf) {
+			if (imgInfo.hasDataUri()) {
+				String imgUri = imgInfo.getDataUri();
+				DataUri uri = new DataUri(imgUri);
+				try {
+					// we do not import the ImageUtils class from utils because we also use another ImageUtils
+					ByteArrayInputStream stream = eu.webtoolkit.jwt.utils.ImageUtils.getByteArrayInputStream(uri.data);
+
+					if ("image/png".equals(uri.mimeType))
+						image = new Image(this.pdf, stream, ImageType.PNG);
+					else if ("image/jpeg".equals(uri.mimeType))
+						image = new Image(this.pdf, stream, ImageType.JPG);
+					else if ("image/bmp".equals(uri.mimeType))
+						image = new Image(this.pdf, stream, ImageType.BMP);
+				} catch (Exception e) {
+					logger.info("Error converting data URI to image", e);
+					logger.trace("Data URI is {}", imgUri, e);
+				}
+			} else {
+				String imgPath = imgInfo.getFilePath();
+				String mimeType = ImageUtils.identifyMimeType(imgPath);
+				try {
+					if ("image/png".equals(mimeType))
+						image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.PNG);
+					else if ("image/jpeg".equals(mimeType))
+						image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.JPG);
+					else if ("image/bmp".equals(mimeType))
+						image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgPath)), ImageType.BMP);
+				} catch (Exception e) {
+					logger.info("Error creating image from {}", imgPath, e);
+				}
 			}
 		}
 
@@ -324,29 +324,25 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	}
 
 	private void drawPlainPath(WPainterPath path) {
-		List<WPainterPath.Segment> segments = path.getSegments();
-
-		if (segments.size() > 0
-				&& segments.get(0).getType() != SegmentType.MoveTo)
+		if (path.getSegmentCount() > 0
+				&& path.getSegmentType(0) != SegmentType.MoveTo)
 			_moveTo(0, 0);
 
-		for (int i = 0; i < segments.size(); ++i) {
-			WPainterPath.Segment s = segments.get(i);
-
-			switch (s.getType()) {
+		for (int i = 0; i < path.getSegmentCount(); ++i) {
+			switch (path.getSegmentType(i)) {
 			case MoveTo:
-				_moveTo(s.getX(), s.getY());
+				_moveTo(path.getSegmentX(i), path.getSegmentY(i));
 				break;
 			case LineTo:
-				_lineTo(s.getX(), s.getY());
+				_lineTo(path.getSegmentX(i), path.getSegmentY(i));
 				break;
 			case CubicC1: {
-				final double x1 = s.getX();
-				final double y1 = s.getY();
-				final double x2 = segments.get(i + 1).getX();
-				final double y2 = segments.get(i + 1).getY();
-				final double x3 = segments.get(i + 2).getX();
-				final double y3 = segments.get(i + 2).getY();
+				final double x1 = path.getSegmentX(i);
+				final double y1 = path.getSegmentY(i);
+				final double x2 = path.getSegmentX(i + 1);
+				final double y2 = path.getSegmentY(i + 1);
+				final double x3 = path.getSegmentX(i + 2);
+				final double y3 = path.getSegmentY(i + 2);
 
 				WPointF current = path.getPositionAtSegment(i);
 				_cubicBezierCurveTo(x1, y1, x2, y2, x3, y3);
@@ -358,11 +354,11 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			case CubicEnd:
 				assert (false);
 			case ArcC: {
-				final double x = s.getX();
-				final double y = s.getY();
-				final double radius = segments.get(i + 1).getX();
-				double ang1 = segments.get(i + 2).getX();
-				double ang2 = ang1 + segments.get(i + 2).getY();
+				final double x = path.getSegmentX(i);
+				final double y = path.getSegmentY(i);
+				final double radius = path.getSegmentX(i + 1);
+				double ang1 = path.getSegmentX(i + 2);
+				double ang2 = ang1 + path.getSegmentY(i + 2);
 
 				_drawArc(x, y, radius, ang1 + 90, ang2 + 90);
 
@@ -378,10 +374,10 @@ public class WPdfImage extends WResource implements WPaintDevice {
 				 * it using a cubic bezier curve.
 				 */
 				WPointF current = path.getPositionAtSegment(i);
-				final double cpx = s.getX();
-				final double cpy = s.getY();
-				final double x = segments.get(i + 1).getX();
-				final double y = segments.get(i + 1).getY();
+				final double cpx = path.getSegmentX(i);
+				final double cpy = path.getSegmentY(i);
+				final double x = path.getSegmentX(i + 1);
+				final double y = path.getSegmentY(i + 1);
 
 				final double cp1x = current.getX() + 2.0 / 3.0 * (cpx - current.getX());
 				final double cp1y = current.getY() + 2.0 / 3.0 * (cpy - current.getY());
@@ -458,51 +454,53 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			logger.info("IOException", e1);
 		}
 
-		double px = 0, py = 0;
+		synchronized (this.font) {
+			double px = 0, py = 0;
 
-		AlignmentFlag horizontalAlign = EnumUtils.enumFromSet(EnumUtils.mask(flags, AlignmentFlag.AlignHorizontalMask));
-		AlignmentFlag verticalAlign = EnumUtils.enumFromSet(EnumUtils.mask(flags, AlignmentFlag.AlignVerticalMask));
+			AlignmentFlag horizontalAlign = EnumUtils.enumFromSet(EnumUtils.mask(flags, AlignmentFlag.AlignHorizontalMask));
+			AlignmentFlag verticalAlign = EnumUtils.enumFromSet(EnumUtils.mask(flags, AlignmentFlag.AlignVerticalMask));
 
-		String s = text.getText().toString();
+			String s = text.getText().toString();
 
-		switch (horizontalAlign) {
-		case Left:
-			px = rect.getLeft();
-			break;
-		case Right:
-			px = rect.getRight() - this.font.stringWidth(s);
-			break;
-		case Center:
-			px = rect.getCenter().getX() - this.font.stringWidth(s) / 2;
-			break;
-		}
+			switch (horizontalAlign) {
+			case Left:
+				px = rect.getLeft();
+				break;
+			case Right:
+				px = rect.getRight() - this.font.stringWidth(s);
+				break;
+			case Center:
+				px = rect.getCenter().getX() - this.font.stringWidth(s) / 2;
+				break;
+			}
 
-		switch (verticalAlign) {
-		case Bottom:
-			py = rect.getBottom();
-			break;
-		case Top:
-			py = rect.getTop() + getFontMetrics().getHeight();
-			break;
-		case Middle:
-			py = rect.getCenter().getY() + getFontMetrics().getHeight()/2;
-		}
+			switch (verticalAlign) {
+			case Bottom:
+				py = rect.getBottom();
+				break;
+			case Top:
+				py = rect.getTop() + getFontMetrics().getHeight();
+				break;
+			case Middle:
+				py = rect.getCenter().getY() + getFontMetrics().getHeight()/2;
+			}
 
-		py -= getFontMetrics().getDescent();
+			py -= getFontMetrics().getDescent();
 
-		preparePen();
-		try {
-			WPointF p = new WPointF(px, py);
-			p = currentTransform.map(p);
+			preparePen();
+			try {
+				WPointF p = new WPointF(px, py);
+				p = currentTransform.map(p);
 
-			double originalSize = this.font.getSize();
-			this.font.setSize(originalSize * (d.sx + d.sy) / 2);
+				double originalSize = this.font.getSize();
+				this.font.setSize(originalSize * (d.sx + d.sy) / 2);
 
-			page.drawString(font, s, p.getX(), p.getY());
+				page.drawString(font, s, p.getX(), p.getY());
 
-			this.font.setSize(originalSize);
-		} catch (IOException e) {
-			logger.info("IOException", e);
+				this.font.setSize(originalSize);
+			} catch (IOException e) {
+				logger.info("IOException", e);
+			}
 		}
 
 		WColor brushColor = painter.getBrush().getColor();
@@ -522,6 +520,12 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	public WTextItem measureText(CharSequence text, double maxWidth, boolean wordWrap) {
 		processChangeFlags();
 
+		synchronized (this.font) {
+			return doMeasureText(text, maxWidth, wordWrap);
+		}
+	}
+
+	private WTextItem doMeasureText(CharSequence text, double maxWidth, boolean wordWrap) {
 		if (wordWrap) {
 			if (maxWidth == -1) {
 				return new WTextItem(text, font.stringWidth(text.toString()));
@@ -567,12 +571,27 @@ public class WPdfImage extends WResource implements WPaintDevice {
 		return this.measureText(text, maxWidth, false);
 	}
 
+	@Override
+	public double[] measureWords(List<? extends CharSequence> words) {
+		processChangeFlags();
+
+		double[] result = new double[words.size()];
+		synchronized (this.font) {
+			for (int i = 0; i < result.length; ++i)
+				result[i] = font.stringWidth(words.get(i).toString());
+		}
+		return result;
+	}
+
 	@Override
 	public WFontMetrics getFontMetrics() {
 		processChangeFlags();
 
-		double ascent = this.font.getAscent();
-		double descent = this.font.getDescent();
+		double ascent, descent;
+		synchronized (this.font) {
+			ascent = this.font.getAscent();
+			descent = this.font.getDescent();
+		}
 		//TODO leading??
 		double leading = 0;
 
@@ -743,14 +762,19 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	}
 
 	private Font createFont(WFont font) {
+		final double size = font.getSizeLength().toPixels();
+
 		if (fontConstructor != null) {
 			FontMatch fm = trueTypeFonts.matchFont(font);
 			if (fm.isMatched()) {
+				final String fileName = fm.getFileName();
 				try {
-					FileInputStream fis = new FileInputStream(fm.getFileName());
-					Font f = (Font)fontConstructor.newInstance(pdf, fis, CodePage.UNICODE, Embed.YES);
-					f.setSize(font.getSizeLength().toPixels());
-					return f;
+					return PdfFontCache.getFont(pdf, fileName, size, () -> {
+						ByteArrayInputStream program = new ByteArrayInputStream(PdfFontCache.getFontProgram(fileName));
+						synchronized (pdf) {
+							return (Font)fontConstructor.newInstance(pdf, program, CodePage.UNICODE, Embed.YES);
+						}
+					});
 				} catch (IllegalArgumentException e) {
 					logger.error("IllegalArgumentException while creating font {}", font.getCssText(), e);
 				} catch (InstantiationException e) {
@@ -759,17 +783,21 @@ public class WPdfImage extends WResource implements WPaintDevice {
 					logger.error("IllegalAccessException while creating font {}", font.getCssText(), e);
 				} catch (InvocationTargetException e) {
 					logger.error("InvocationTargetException while creating font {}", font.getCssText(), e);
-				} catch (FileNotFoundException e) {
-					logger.info("FileNotFoundException while creating font {}", font.getCssText(), e);
+				} catch (IOException e) {
+					logger.info("IOException while creating font {}", font.getCssText(), e);
+				} catch (Exception e) {
+					logger.error("Exception while creating font {}", font.getCssText(), e);
 				}
 			}
 		}
 
-		String name = PdfUtils.toBase14Font(font);
+		final String name = PdfUtils.toBase14Font(font);
 		try {
-			Font f = new Font(pdf, name);
-			f.setSize(font.getSizeLength().toPixels());
-			return f;
+			return PdfFontCache.getFont(pdf, name, size, () -> {
+				synchronized (pdf) {
+					return new Font(pdf, name);
+				}
+			});
 		} catch (Exception e) {
 			logger.info("Error creating font {}", font.getCssText(), e);
 			return null;
@@ -15,6 +15,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
@@ -25,15 +26,24 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import eu.webtoolkit.jwt.WPainterPath.Segment;
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
 import eu.webtoolkit.jwt.utils.EnumUtils;
@@ -44,8 +54,30 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 
 	private static final int MITER_LIMIT = 10;
 
+	/**
+	 * The minimum height of a strip, when painting in tiled mode.
+	 */
+	public static final int MIN_STRIP_HEIGHT = 128;
+
+	/*
+	 * PNG writers that are reused, since looking up and creating a writer is
+	 * relatively expensive. At most MAX_PNG_WRITERS idle writers are kept.
+	 */
+	private static final int MAX_PNG_WRITERS = 8;
+	private static final Deque<ImageWriter> pngWriters_ = new ArrayDeque<ImageWriter>();
+
 	enum Format { PngFormat }
 
+	/**
+	 * A paint operation, which is recorded in tiled mode and replayed for each strip.
+	 *
+	 * The <code>strip</code> is the area of the image that is painted, or
+	 * <code>null</code> when the operation is applied to the whole image.
+	 */
+	private interface PaintOp {
+		void apply(Graphics2D g, Rectangle strip);
+	}
+
 	private Format format;
 	private WLength width;
 	private WLength height;
@@ -59,6 +91,10 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 
 	private volatile ByteArrayOutputStream output;
 
+	private int compressionLevel = -1;
+	private ForkJoinPool tilePool;
+	private List<PaintOp> ops;
+
 	public WRasterPaintDevice(String format, WLength width, WLength height) {
 		this.width = width;
 		this.height = height;
@@ -69,7 +105,86 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		this.changeFlags = EnumSet.noneOf(PainterChangeFlag.class);
 
 		if (width.toPixels() > 0 && height.toPixels() > 0)
-			this.image = new BufferedImage((int)width.toPixels(), (int)height.toPixels(), BufferedImage.TYPE_INT_ARGB);
+			this.image = RasterImagePool.acquire((int)width.toPixels(), (int)height.toPixels(), BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Sets the PNG compression level.
+	 *
+	 * The level ranges from 0 (no compression, fastest) to 9 (best compression,
+	 * slowest). The default value -1 uses the default level of the image writer.
+	 */
+	public void setCompressionLevel(int level) {
+		if (level < -1 || level > 9)
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		this.compressionLevel = level;
+	}
+
+	/**
+	 * Returns the PNG compression level.
+	 *
+	 * @see #setCompressionLevel(int)
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Enables tiled rendering.
+	 *
+	 * In tiled mode, the paint operations are recorded while painting, and are
+	 * replayed when painting is done, in parallel, on horizontal strips of the
+	 * image using the given <code>pool</code>. This speeds up the rasterization
+	 * of large images on multi-core machines, at the expense of the memory needed
+	 * to record the operations. Images that are less than two strips high
+	 * ({@link #MIN_STRIP_HEIGHT}) are always painted directly. Since each strip is
+	 * clipped, anti-aliased edges may differ slightly from a directly painted image.
+	 *
+	 * The default value is <code>null</code>, which disables tiled rendering.
+	 */
+	public void setTiledRendering(ForkJoinPool pool) {
+		this.tilePool = pool;
+	}
+
+	/**
+	 * Enables tiled rendering using the common pool.
+	 *
+	 * Calls {@link #setTiledRendering(ForkJoinPool) setTiledRendering(enabled ? ForkJoinPool.commonPool() : null)}
+	 */
+	public final void setTiledRendering(boolean enabled) {
+		setTiledRendering(enabled ? ForkJoinPool.commonPool() : null);
+	}
+
+	/**
+	 * Returns the pool used for tiled rendering.
+	 *
+	 * @see #setTiledRendering(ForkJoinPool)
+	 */
+	public ForkJoinPool getTiledRendering() {
+		return tilePool;
+	}
+
+	/**
+	 * Returns the image buffer to a pool of buffers.
+	 *
+	 * Devices of the same size reuse the pooled buffers. The device can no
+	 * longer be painted on, but continues to serve the last image.
+	 */
+	@Override
+	public void remove() {
+		if (g2 != null) {
+			g2.dispose();
+			g2 = null;
+		}
+
+		if (image != null) {
+			RasterImagePool.release(image);
+			image = null;
+		}
+
+		ops = null;
+
+		super.remove();
 	}
 
 	protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
@@ -79,20 +194,133 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 			out.writeTo(response.getOutputStream());
 	}
 
+	/**
+	 * Returns the encoded image, as served by this resource.
+	 */
+	byte[] getImageData() {
+		ByteArrayOutputStream out = output;
+		return out != null ? out.toByteArray() : new byte[0];
+	}
+
 	@Override
 	public void done() {
 		if (image == null)
 			return;
 
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (ops != null) {
+			paintStrips(ops);
+			ops = null;
+		}
+
+		ByteArrayOutputStream previous = output;
+		ByteArrayOutputStream out = new ByteArrayOutputStream(previous != null ? previous.size() : 8192);
 		try {
-		  ImageIO.write(image, "png", out);
+		  writePng(out);
 		  output = out;
 		} catch (IOException e) {
 			logger.error("Unexpected IOException when writing png to byte buffer", e);
 		}
 	}
 
+	private static ImageWriter acquirePngWriter() {
+		synchronized (pngWriters_) {
+			ImageWriter writer = pngWriters_.poll();
+			if (writer != null)
+				return writer;
+		}
+
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		return writers.hasNext() ? writers.next() : null;
+	}
+
+	private static void releasePngWriter(ImageWriter writer) {
+		writer.reset();
+		synchronized (pngWriters_) {
+			if (pngWriters_.size() < MAX_PNG_WRITERS) {
+				pngWriters_.push(writer);
+				return;
+			}
+		}
+
+		writer.dispose();
+	}
+
+	private void writePng(ByteArrayOutputStream out) throws IOException {
+		ImageWriter writer = acquirePngWriter();
+		if (writer == null) {
+			ImageIO.write(image, "png", out);
+			return;
+		}
+
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		if (compressionLevel >= 0 && param.canWriteCompressed()) {
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(1.0f - compressionLevel / 9.0f);
+		}
+
+		MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+		try {
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			releasePngWriter(writer);
+			stream.close();
+		}
+	}
+
+	private void paintStrips(List<PaintOp> ops) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int stripHeight = Math.max(MIN_STRIP_HEIGHT, (h + tilePool.getParallelism() - 1) / tilePool.getParallelism());
+
+		List<ForkJoinTask<?>> strips = new ArrayList<ForkJoinTask<?>>();
+		for (int y = 0; y < h; y += stripHeight) {
+			final Rectangle strip = new Rectangle(0, y, w, Math.min(stripHeight, h - y));
+			strips.add(tilePool.submit(() -> {
+				Graphics2D g = createGraphics();
+				g.setClip(strip);
+				try {
+					for (PaintOp op : ops)
+						op.apply(g, strip);
+				} finally {
+					g.dispose();
+				}
+			}));
+		}
+
+		for (ForkJoinTask<?> strip : strips)
+			strip.join();
+	}
+
+	private Graphics2D createGraphics() {
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		return g;
+	}
+
+	private boolean isTiled() {
+		return tilePool != null && image != null && image.getHeight() >= 2 * MIN_STRIP_HEIGHT;
+	}
+
+	/**
+	 * Paints on the image, or records the operation in tiled mode.
+	 */
+	private void paint(PaintOp op) {
+		if (ops != null)
+			ops.add(op);
+		else
+			op.apply(g2, null);
+	}
+
+	/**
+	 * Changes the graphics state, which is also recorded in tiled mode.
+	 */
+	private void changeState(PaintOp op) {
+		op.apply(g2, null);
+		if (ops != null)
+			ops.add(op);
+	}
+
 
 	public void drawArc(WRectF rect, double startAngle, double spanAngle) {
 		drawShape(new Arc2D.Double(rect.getLeft(), rect.getTop(), rect.getWidth(), rect.getHeight(),
@@ -138,7 +366,7 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		float xScale = (float)(rect.getWidth() / sourceRect.getWidth());
 		float yScale = (float)(rect.getHeight() / sourceRect.getHeight());
 		AffineTransform t = new AffineTransform(xScale, 0f, 0f, yScale, rect.getLeft(), rect.getTop());
-		g2.drawImage(subImg, t, null);
+		paint((g, strip) -> g.drawImage(subImg, t, null));
 	}
 
 
@@ -162,44 +390,41 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	 * @return a shape that represents the path
 	 */
 	public static Shape createShape(WPainterPath path) {
-		GeneralPath p = new GeneralPath();
+		int n = path.getSegmentCount();
+		GeneralPath p = new GeneralPath(GeneralPath.WIND_NON_ZERO, Math.max(n, 10));
 
-		for (Iterator<Segment> i = path.getSegments().iterator(); i.hasNext();) {
-			Segment s = i.next();
-			switch (s.getType()) {
+		for (int i = 0; i < n; ++i) {
+			SegmentType type = path.getSegmentType(i);
+			switch (type) {
 			case MoveTo:
-				p.moveTo((float)s.getX(), (float)s.getY());
+				p.moveTo((float)path.getSegmentX(i), (float)path.getSegmentY(i));
 				break;
 			case LineTo:
-				p.lineTo((float)s.getX(), (float)s.getY());
+				p.lineTo((float)path.getSegmentX(i), (float)path.getSegmentY(i));
 				break;
 			case QuadC:
-				double x1 = s.getX();
-				double y1 = s.getY();
-				s = i.next();
-				p.quadTo((float)x1, (float)y1, (float)s.getX(), (float)s.getY());
+				p.quadTo((float)path.getSegmentX(i), (float)path.getSegmentY(i),
+						(float)path.getSegmentX(i + 1), (float)path.getSegmentY(i + 1));
+				i += 1;
 				break;
 			case CubicC1:
-				x1 = s.getX();
-				y1 = s.getY();
-				s = i.next();
-				double x2 = s.getX();
-				double y2 = s.getY();
-				s = i.next();
-				p.curveTo((float)x1, (float)y1, (float)x2, (float)y2, (float)s.getX(), (float)s.getY());
+				p.curveTo((float)path.getSegmentX(i), (float)path.getSegmentY(i),
+						(float)path.getSegmentX(i + 1), (float)path.getSegmentY(i + 1),
+						(float)path.getSegmentX(i + 2), (float)path.getSegmentY(i + 2));
+				i += 2;
 				break;
 			case ArcC:
-				double cx = s.getX();
-				double cy = s.getY();
-				s = i.next();
-				double rx = s.getX();
-				double ry = s.getY();
-				s = i.next();
-				Arc2D arc = new Arc2D.Double((float)(cx - rx), (float)(cy - ry), (float)(rx * 2), (float)(ry * 2), (float)s.getX(), (float)s.getY(), Arc2D.OPEN);
+				double cx = path.getSegmentX(i);
+				double cy = path.getSegmentY(i);
+				double rx = path.getSegmentX(i + 1);
+				double ry = path.getSegmentY(i + 1);
+				Arc2D arc = new Arc2D.Double((float)(cx - rx), (float)(cy - ry), (float)(rx * 2), (float)(ry * 2),
+						(float)path.getSegmentX(i + 2), (float)path.getSegmentY(i + 2), Arc2D.OPEN);
 				p.append(arc, true);
+				i += 2;
 				break;
 			default:
-				throw new RuntimeException("Unexpected segment type: " + s.getType());
+				throw new RuntimeException("Unexpected segment type: " + type);
 			}
 		}
 		return p;
@@ -251,8 +476,12 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 
 		py -= g2.getFontMetrics().getDescent();
 
-		g2.setPaint(penPaint);
-		g2.drawString(s, (float)px, (float)py);
+		final Paint paint = penPaint;
+		final float x = (float)px, y = (float)py;
+		paint((g, strip) -> {
+			g.setPaint(paint);
+			g.drawString(s, x, y);
+		});
 	}
 
 	@Override
@@ -278,8 +507,8 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 
 	public void init() {
 		if (image != null) {
-			this.g2 = image.createGraphics();
-			g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			this.g2 = createGraphics();
+			this.ops = isTiled() ? new ArrayList<PaintOp>() : null;
 		}
 
 		changeFlags.add(PainterChangeFlag.Pen);
@@ -328,11 +557,7 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 			res = new WSelfDeletingResource("image/png");
 		}
 
-		try {
-			res.setData(this.writeToMemory());
-		} catch (IOException e) {
-			logger.error("Error while generating resource for bot: {}", e.getMessage());
-		}
+		res.setData(this.getImageData());
 
 		return res;
 	}
@@ -341,13 +566,19 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		processChangeFlags();
 
 		if (painter.getPen().getStyle() != PenStyle.None) {
-			g2.setPaint(penPaint);
-			g2.draw(shape);
+			final Paint paint = penPaint;
+			paint((g, strip) -> {
+				g.setPaint(paint);
+				g.draw(shape);
+			});
 		}
 
 		if (painter.getBrush().getStyle() != BrushStyle.None) {
-			g2.setPaint(brushPaint);
-			g2.fill(shape);
+			final Paint paint = brushPaint;
+			paint((g, strip) -> {
+				g.setPaint(paint);
+				g.fill(shape);
+			});
 		}
 	}
 
@@ -356,10 +587,19 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 
 		if (changeFlags.contains(PainterChangeFlag.Clipping)) {
 			setTransform(painter.getClipPathTransform());
-			if (painter.getClipPath().isEmpty())
-				g2.setClip(null);
-			else
-				g2.setClip(createShape(painter.getClipPath()));
+			final Shape clip = painter.getClipPath().isEmpty() ? null : createShape(painter.getClipPath());
+			changeState((g, strip) -> {
+				if (strip == null)
+					g.setClip(clip);
+				else {
+					AffineTransform t = g.getTransform();
+					g.setTransform(new AffineTransform());
+					g.setClip(strip);
+					g.setTransform(t);
+					if (clip != null)
+						g.clip(clip);
+				}
+			});
 			resetTransform = true;
 		}
 
@@ -367,21 +607,23 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 			setTransform(painter.getCombinedTransform());
 
 		if (changeFlags.contains(PainterChangeFlag.Pen)) {
-			g2.setStroke(createStroke(painter, painter.getPen()));
+			final Stroke stroke = createStroke(painter, painter.getPen());
+			changeState((g, strip) -> g.setStroke(stroke));
 			penPaint = createColor(painter.getPen().getColor());
 		}
 
 		if (changeFlags.contains(PainterChangeFlag.Brush))
 			brushPaint = createColor(painter.getBrush().getColor());
 
-		if (changeFlags.contains(PainterChangeFlag.Font))
-			g2.setFont(createFont(painter.getFont()));
+		if (changeFlags.contains(PainterChangeFlag.Font)) {
+			final Font font = createFont(painter.getFont());
+			changeState((g, strip) -> g.setFont(font));
+		}
 
 		if (changeFlags.contains(PainterChangeFlag.Hints)) {
-			if (painter.getRenderHints().contains(RenderHint.Antialiasing))
-				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-			else
-				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			final Object antialiasing = painter.getRenderHints().contains(RenderHint.Antialiasing)
+				? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+			changeState((g, strip) -> g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing));
 		}
 
 		changeFlags.clear();
@@ -483,7 +725,8 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	}
 
 	private void setTransform(WTransform t) {
-		g2.setTransform(new AffineTransform(t.getM11(), t.getM12(), t.getM21(), t.getM22(), t.getM31(), t.getM32()));
+		final AffineTransform transform = new AffineTransform(t.getM11(), t.getM12(), t.getM21(), t.getM22(), t.getM31(), t.getM32());
+		changeState((g, strip) -> g.setTransform(transform));
 	}
 
 	/**
@@ -491,8 +734,11 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	 */
 	public void clear() {
 		if (g2 != null) {
-			g2.setBackground(new Color(255, 255, 255, 0));
-			g2.clearRect(0, 0, (int)width.getValue(), (int)height.getValue());
+			final int w = (int)width.getValue(), h = (int)height.getValue();
+			paint((g, strip) -> {
+				g.setBackground(new Color(255, 255, 255, 0));
+				g.clearRect(0, 0, w, h);
+			});
 		}
 	}
 
@@ -531,6 +777,17 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		return measureText(text, maxWidth, false);
 	}
 
+	@Override
+	public double[] measureWords(List<? extends CharSequence> words) {
+		processChangeFlags();
+		FontMetrics metrics = g2.getFontMetrics(g2.getFont());
+
+		double[] result = new double[words.size()];
+		for (int i = 0; i < result.length; ++i)
+			result[i] = metrics.stringWidth(words.get(i).toString());
+		return result;
+	}
+
 	@Override
 	public EnumSet<PaintDeviceFeatureFlag> getFeatures() {
 		return EnumSet.of(PaintDeviceFeatureFlag.FontMetrics, PaintDeviceFeatureFlag.WordWrap);
@@ -50,6 +50,17 @@ import eu.webtoolkit.jwt.servlet.WebResponse;
  * you are not allowed to access or modify widget state from within the
  * resource, unless you provide your own locking mechanism for it.
  *
+ * <h3>Streaming large responses</h3>
+ *
+ * A resource that generates a large response (such as an export of a large
+ * model) may, from within {@link #handleRequest(WebRequest, WebResponse)},
+ * pass a {@link ResponseStreamer} to {@link WebResponse#stream(ResponseStreamer)}
+ * instead of writing the whole response at once. The response body is then
+ * produced chunk by chunk, only when the servlet container indicates that the
+ * client can accept more data, without holding on to a thread (or the
+ * application's update lock) in between. The streamer is notified when the
+ * client disconnects before the response is complete.
+ *
  * @see WAnchor
  * @see WImage
  */
@@ -71,6 +82,43 @@ public abstract class WResource extends WObject {
 		 */
 		Inline
 	};
+
+	/**
+	 * Produces a response body chunk by chunk.
+	 * <p>
+	 * See {@link WebResponse#stream(ResponseStreamer)}.
+	 * <p>
+	 * The streamer is invoked from a servlet container thread, without holding
+	 * the application's update lock: if the streamer needs to access widget
+	 * state, it should take a {@link WApplication.UpdateLock}.
+	 */
+	public interface ResponseStreamer {
+		/**
+		 * Writes the next chunk of the response.
+		 * <p>
+		 * A chunk should be of a reasonable size (e.g. a few kilobytes up to a
+		 * few hundred kilobytes): the next chunk is only requested once the
+		 * previous chunk could be written without blocking.
+		 *
+		 * @param out the response output stream
+		 * @return whether more chunks follow. When <code>false</code> is
+		 *         returned, the response is completed.
+		 * @throws IOException when writing fails, the response is aborted.
+		 */
+		public boolean writeChunk(OutputStream out) throws IOException;
+
+		/**
+		 * Called when the response is aborted before it is complete.
+		 * <p>
+		 * This happens when the client disconnects, or when
+		 * {@link #writeChunk(OutputStream)} throws an exception. The default
+		 * implementation does nothing.
+		 *
+		 * @param error the reason why the response was aborted
+		 */
+		public default void cancelled(Throwable error) {
+		}
+	}
 	private static Logger logger = LoggerFactory.getLogger(WResource.class);
 
 	private Signal dataChanged_ = new Signal(this);
@@ -216,7 +264,8 @@ public abstract class WResource extends WObject {
 		}
 
 		handleRequest(request, response);
-		response.flush();
+		if (!response.isStreaming())
+			response.flush();
 	}
 
 	/**
@@ -254,7 +303,8 @@ public abstract class WResource extends WObject {
 		WebRequest request = new WebRequest(parameterMap, uploadedFiles);
 		WebResponse response = new WebResponse(out);
 		handleRequest(request, response);
-		response.flush();
+		if (!response.isStreaming())
+			response.flush();
 	}
 
 	/**
@@ -278,6 +278,14 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		logger.debug("bufferDataiv: {}", glCtx_.glGetError());
 	}
 
+	@Override
+	public void bufferDataiv(WGLWidget.GLenum target,
+			java.nio.IntBuffer buffer, WGLWidget.GLenum usage,
+			WGLWidget.GLenum type, boolean binary)
+	{
+		bufferDataiv(target, buffer, usage, type);
+	}
+
 	@Override
 	public void bufferSubDataiv(WGLWidget.GLenum target, int offset,
 			java.nio.IntBuffer buffer, WGLWidget.GLenum type)
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable prefix index of suggestions for a {@link WSuggestionPopup}.
+ * <p>
+ *
+ * The index keeps the suggestions sorted on a (optionally case and diacritic
+ * folded) key, and finds the suggestions that start with a given prefix using a
+ * binary search. This makes server-side filtering of a large list of
+ * suggestions independent of its size, while filtering the model using e.g.
+ * {@link WSortFilterProxyModel#setFilterRegExp(java.util.regex.Pattern)
+ * WSortFilterProxyModel#setFilterRegExp()} scans every row for every filter
+ * request.
+ * <p>
+ * Since the index cannot be modified once it is created, a single index may be
+ * shared by all sessions, e.g. by keeping it in a static field. Use
+ * {@link WSuggestionPopup#setSuggestionIndex(WSuggestionIndex, int)} to let a
+ * popup fill its model from the index.
+ * <p>
+ * Matches are returned in the order of their key. When folding is enabled,
+ * suggestions are returned for input that differs only in case or diacritics,
+ * but note that the client-side matcher of the popup (see
+ * {@link WSuggestionPopup.Options}) still has to accept these suggestions.
+ */
+public class WSuggestionIndex {
+	/**
+	 * Enumeration of the folding that is applied to suggestions and prefixes.
+	 */
+	public enum Folding {
+		/** Matches regardless of case. */
+		Case,
+		/** Matches regardless of diacritics (e.g. &quot;e&quot; matches &quot;é&quot;). */
+		Diacritics
+	}
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+	private final EnumSet<Folding> folding_;
+	private final String[] keys_;
+	private final String[] texts_;
+	private final String[] values_;
+
+	/**
+	 * Creates an index for a collection of suggestions.
+	 * <p>
+	 * The value of each suggestion (which is inserted in the edit field) is the
+	 * suggestion text itself.
+	 */
+	public WSuggestionIndex(Collection<String> suggestions, EnumSet<Folding> folding) {
+		this(suggestions.toArray(new String[suggestions.size()]), null, folding);
+	}
+
+	/**
+	 * Creates an index for a collection of suggestions.
+	 * <p>
+	 * Calls {@link #WSuggestionIndex(Collection, EnumSet) this(suggestions,
+	 * EnumSet.noneOf(Folding.class))}
+	 */
+	public WSuggestionIndex(Collection<String> suggestions) {
+		this(suggestions, EnumSet.noneOf(Folding.class));
+	}
+
+	/**
+	 * Creates an index for suggestions with a separate value.
+	 * <p>
+	 * The <code>values</code> contain for each of the <code>texts</code> the
+	 * value that is inserted in the edit field. A <code>null</code> value means
+	 * that the text is used.
+	 */
+	public WSuggestionIndex(List<String> texts, List<String> values, EnumSet<Folding> folding) {
+		this(texts.toArray(new String[texts.size()]), checkValues(texts, values), folding);
+	}
+
+	private WSuggestionIndex(String[] texts, String[] values, EnumSet<Folding> folding) {
+		folding_ = EnumSet.copyOf(folding);
+
+		Entry[] entries = new Entry[texts.length];
+		for (int i = 0; i < texts.length; ++i) {
+			entries[i] = new Entry(fold(texts[i]), texts[i], values != null ? values[i] : null);
+		}
+		Arrays.sort(entries);
+
+		keys_ = new String[entries.length];
+		texts_ = new String[entries.length];
+		values_ = new String[entries.length];
+		for (int i = 0; i < entries.length; ++i) {
+			keys_[i] = entries[i].key;
+			texts_[i] = entries[i].text;
+			values_[i] = entries[i].value;
+		}
+	}
+
+	/**
+	 * Returns the folding that is applied.
+	 */
+	public EnumSet<Folding> getFolding() {
+		return EnumSet.copyOf(folding_);
+	}
+
+	/**
+	 * Returns the number of suggestions.
+	 */
+	public int getCount() {
+		return texts_.length;
+	}
+
+	/**
+	 * Returns the text of a suggestion.
+	 * <p>
+	 * Suggestions are numbered in the order of their key.
+	 */
+	public String getText(int i) {
+		return texts_[i];
+	}
+
+	/**
+	 * Returns the value of a suggestion.
+	 * <p>
+	 * Returns the text if no separate value was given for the suggestion.
+	 */
+	public String getValue(int i) {
+		return values_[i] != null ? values_[i] : texts_[i];
+	}
+
+	/**
+	 * Returns the suggestions that start with a prefix.
+	 * <p>
+	 * Returns the numbers of at most <code>limit</code> matching suggestions, in
+	 * the order of their key.
+	 */
+	public int[] find(String prefix, int limit) {
+		String key = fold(prefix);
+		int begin = lowerBound(key, false);
+		int end = Math.min(lowerBound(key, true), begin + Math.max(limit, 0));
+
+		int[] result = new int[end - begin];
+		for (int i = 0; i < result.length; ++i)
+			result[i] = begin + i;
+		return result;
+	}
+
+	/**
+	 * Returns the number of suggestions that start with a prefix.
+	 */
+	public int getMatchCount(String prefix) {
+		String key = fold(prefix);
+		return lowerBound(key, true) - lowerBound(key, false);
+	}
+
+	/**
+	 * Folds a string according to the folding of this index.
+	 * <p>
+	 * This is applied to both suggestions and prefixes.
+	 */
+	public String fold(String s) {
+		if (folding_.contains(Folding.Diacritics) && !isAscii(s))
+			s = DIACRITICS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+		if (folding_.contains(Folding.Case))
+			s = s.toLowerCase(Locale.ROOT);
+		return s;
+	}
+
+	/*
+	 * Returns the first key that is not before the prefix, or if after is
+	 * true, the first key that is after all keys that start with the prefix.
+	 */
+	private int lowerBound(String prefix, boolean after) {
+		int lo = 0, hi = keys_.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = comparePrefix(keys_[mid], prefix);
+			if (c < 0 || (after && c == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/*
+	 * Compares the key, truncated to the length of the prefix, with the prefix.
+	 */
+	private static int comparePrefix(String key, String prefix) {
+		int n = Math.min(key.length(), prefix.length());
+		for (int i = 0; i < n; ++i) {
+			char a = key.charAt(i), b = prefix.charAt(i);
+			if (a != b)
+				return a - b;
+		}
+		return key.length() < prefix.length() ? -1 : 0;
+	}
+
+	private static String[] checkValues(List<String> texts, List<String> values) {
+		if (texts.size() != values.size())
+			throw new IllegalArgumentException("WSuggestionIndex: texts and values differ in size");
+		return values.toArray(new String[values.size()]);
+	}
+
+	private static boolean isAscii(String s) {
+		for (int i = 0; i < s.length(); ++i)
+			if (s.charAt(i) >= 0x80)
+				return false;
+		return true;
+	}
+
+	private static class Entry implements Comparable<Entry> {
+		final String key;
+		final String text;
+		final String value;
+
+		Entry(String key, String text, String value) {
+			this.key = key;
+			this.text = text;
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			return key.compareTo(other.key);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A map from integer ids to weakly referenced objects.
+ *
+ * This is used to look up exposed signals and objects from the (base-62
+ * encoded) ids that are sent by the browser. The map uses open addressing on
+ * primitive keys, and entries of objects that have been garbage collected are
+ * removed when the map is modified, by polling a reference queue.
+ */
+final class WeakIdMap<T> {
+	private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+	private static final class Ref<T> extends WeakReference<T> {
+		final int id;
+
+		Ref(int id, T value, ReferenceQueue<T> queue) {
+			super(value, queue);
+			this.id = id;
+		}
+	}
+
+	private final ReferenceQueue<T> queue_ = new ReferenceQueue<T>();
+	private int[] ids_;
+	private Ref<T>[] refs_;
+	private int size_;
+
+	WeakIdMap() {
+		allocate(16);
+	}
+
+	void put(int id, T value) {
+		expunge();
+
+		if ((size_ + 1) * 4 > refs_.length * 3)
+			rehash(refs_.length * 2);
+
+		int i = slot(id);
+		while (refs_[i] != null && ids_[i] != id)
+			i = (i + 1) & (refs_.length - 1);
+
+		if (refs_[i] == null)
+			++size_;
+		else
+			refs_[i].clear();
+
+		ids_[i] = id;
+		refs_[i] = new Ref<T>(id, value, queue_);
+	}
+
+	T get(int id) {
+		int i = indexOf(id);
+		return i >= 0 ? refs_[i].get() : null;
+	}
+
+	T remove(int id) {
+		expunge();
+
+		int i = indexOf(id);
+		if (i < 0)
+			return null;
+
+		T result = refs_[i].get();
+		refs_[i].clear();
+		delete(i);
+		return result;
+	}
+
+	/*
+	 * Returns the number of entries, including entries of objects that have
+	 * been garbage collected but not yet removed.
+	 */
+	int size() {
+		return size_;
+	}
+
+	List<T> values() {
+		expunge();
+
+		List<T> result = new ArrayList<T>(size_);
+		for (Ref<T> ref : refs_) {
+			if (ref != null) {
+				T value = ref.get();
+				if (value != null)
+					result.add(value);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Encodes an id as a prefix followed by the id in base 62.
+	 */
+	static String encode(char prefix, int id) {
+		char[] buf = new char[7];
+		int pos = buf.length;
+		long v = id & 0xFFFFFFFFL;
+		do {
+			buf[--pos] = DIGITS.charAt((int) (v % 62));
+			v /= 62;
+		} while (v != 0);
+		buf[--pos] = prefix;
+		return new String(buf, pos, buf.length - pos);
+	}
+
+	/*
+	 * Decodes an id that was encoded using encode(), returning -1 if the
+	 * string is not a valid encoded id with the given prefix.
+	 */
+	static long decode(String s, char prefix) {
+		int n = s.length();
+		if (n < 2 || n > 7 || s.charAt(0) != prefix)
+			return -1;
+
+		long result = 0;
+		for (int i = 1; i < n; ++i) {
+			char c = s.charAt(i);
+			int d;
+			if (c >= '0' && c <= '9')
+				d = c - '0';
+			else if (c >= 'a' && c <= 'z')
+				d = c - 'a' + 10;
+			else if (c >= 'A' && c <= 'Z')
+				d = c - 'A' + 36;
+			else
+				return -1;
+			result = result * 62 + d;
+		}
+
+		return result <= 0xFFFFFFFFL ? result : -1;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void allocate(int capacity) {
+		ids_ = new int[capacity];
+		refs_ = new Ref[capacity];
+		size_ = 0;
+	}
+
+	private void rehash(int capacity) {
+		Ref<T>[] refs = refs_;
+		allocate(capacity);
+
+		for (Ref<T> ref : refs) {
+			if (ref != null) {
+				int i = slot(ref.id);
+				while (refs_[i] != null)
+					i = (i + 1) & (refs_.length - 1);
+				ids_[i] = ref.id;
+				refs_[i] = ref;
+				++size_;
+			}
+		}
+	}
+
+	private void expunge() {
+		for (;;) {
+			@SuppressWarnings("unchecked")
+			Ref<T> ref = (Ref<T>) queue_.poll();
+			if (ref == null)
+				break;
+
+			int i = indexOf(ref.id);
+			if (i >= 0 && refs_[i] == ref)
+				delete(i);
+		}
+	}
+
+	private int indexOf(int id) {
+		int mask = refs_.length - 1;
+		for (int i = slot(id);; i = (i + 1) & mask) {
+			if (refs_[i] == null)
+				return -1;
+			else if (ids_[i] == id)
+				return i;
+		}
+	}
+
+	/*
+	 * Removes the entry at a slot, moving back later entries of the same
+	 * probe sequence.
+	 */
+	private void delete(int i) {
+		int mask = refs_.length - 1;
+		for (int j = (i + 1) & mask; refs_[j] != null; j = (j + 1) & mask) {
+			int k = slot(ids_[j]);
+			boolean keep = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+			if (!keep) {
+				ids_[i] = ids_[j];
+				refs_[i] = refs_[j];
+				i = j;
+			}
+		}
+		refs_[i] = null;
+		--size_;
+	}
+
+	private int slot(int id) {
+		int h = id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (refs_.length - 1);
+	}
+}
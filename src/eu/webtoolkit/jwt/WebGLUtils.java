@@ -1,7 +1,5 @@
 package eu.webtoolkit.jwt;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.FloatBuffer;
 
@@ -24,6 +22,10 @@ public class WebGLUtils {
 	static String makeFloat(double d) {
 		return MathUtils.roundJs(d, 6);
 	}
+
+	static StringWriter makeFloat(StringWriter js, double d) {
+		return MathUtils.roundJs(js, d, 6);
+	}
 	
 	static String makeInt(int i) {
 		return String.valueOf(i);
@@ -46,7 +48,7 @@ public class WebGLUtils {
 	    final int dim = 4;
 	    for (int i = 0; i < dim; i++)
 	    	for (int j = 0; j < dim; j++)
-	    		js.append((i == 0 && j == 0 ? "" : ",")).append(makeFloat(t.getElement(i, j)));
+	    		makeFloat(js.append((i == 0 && j == 0 ? "" : ",")), t.getElement(i, j));
 	    if (arrayType == JsArrayType.Float32Array) {
 	    	js.append("])");
 		} else if (arrayType == JsArrayType.Array) {
@@ -66,7 +68,7 @@ public class WebGLUtils {
 	    final int dim = 2;
 	    for (int i = 0; i < dim; i++)
 	    	for (int j = 0; j < dim; j++)
-	    		js.append((i == 0 && j == 0 ? "" : ",")).append(makeFloat(t.getElement(i, j)));
+	    		makeFloat(js.append((i == 0 && j == 0 ? "" : ",")), t.getElement(i, j));
 	    if (arrayType == JsArrayType.Float32Array) {
 	    	js.append("])");
 		} else if (arrayType == JsArrayType.Array) {
@@ -99,28 +101,28 @@ public class WebGLUtils {
 	    final int dim = 3;
 	    for (int i = 0; i < dim; i++)
 	    	for (int j = 0; j < dim; j++)
-	    		js.append((i == 0 && j == 0 ? "" : ",")).append(makeFloat(t.getElement(i, j)));
+	    		makeFloat(js.append((i == 0 && j == 0 ? "" : ",")), t.getElement(i, j));
 	    typeClose(js, arrayType);
 	}
 	
 	static void renderfv(StringWriter js, float[] value, int size, JsArrayType arrayType) {
 		typeOpen(js, arrayType);
 		for (int i = 0; i < size; i++)
-			js.append((i == 0 ? "" : ",")).append(makeFloat(value[i]));
+			makeFloat(js.append((i == 0 ? "" : ",")), value[i]);
 		typeClose(js, arrayType);
 	}
 	
 	static void renderfv(StringWriter js, double[] value, int size, JsArrayType arrayType) {
 		typeOpen(js, arrayType);
 		for (int i = 0; i < size; i++)
-			js.append((i == 0 ? "" : ",")).append(makeFloat(value[i]));
+			makeFloat(js.append((i == 0 ? "" : ",")), value[i]);
 		typeClose(js, arrayType);
 	}
 	
 	public static void renderfv(StringWriter js, FloatBuffer buffer, JsArrayType arrayType) {
 		typeOpen(js, arrayType);
 		for (int i = 0; i < buffer.capacity(); i++)
-			js.append((i == 0 ? "" : ",")).append(makeFloat(buffer.get()));
+			makeFloat(js.append((i == 0 ? "" : ",")), buffer.get());
 		typeClose(js, arrayType);
 	}
 
@@ -130,19 +132,13 @@ public class WebGLUtils {
     	java.nio.FloatBuffer fb = buffer.asFloatBuffer();
     	typeOpen(js, arrayType);
     	for (int i = 0; i < buffer.capacity(); i++)
-    		js.append((i == 0 ? "" : ",")).append(makeFloat(buffer.getFloat()));
+    		makeFloat(js.append((i == 0 ? "" : ",")), buffer.getFloat());
     	typeClose(js, arrayType);
 	}
     
     public static WMemoryResource rpdToMemResource(WRasterPaintDevice rpd) {
-    	ByteArrayOutputStream data = new ByteArrayOutputStream();
-    	try {
-    		rpd.write(data);
-    	} catch (IOException e) {
-    		logger.error("rpdToMemResource: unexpected IOException", e);
-    	}
     	WMemoryResource mr = new WMemoryResource("image/png");
-    	mr.setData(data.toByteArray());
+    	mr.setData(rpd.getImageData());
     	return mr;
     }
 
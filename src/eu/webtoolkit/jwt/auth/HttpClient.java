@@ -1,102 +1,310 @@
 package eu.webtoolkit.jwt.auth;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.webtoolkit.jwt.Signal2;
-import eu.webtoolkit.jwt.WObject;
+import eu.webtoolkit.jwt.WApplication;
+import eu.webtoolkit.jwt.WtServlet;
 
+/**
+ * HTTP client used by the OAuth/OpenID Connect processes.
+ * <p>
+ * All instances share a single, process-wide connection pool, so that
+ * subsequent token and user info requests to the same provider reuse
+ * keep-alive connections instead of setting up a new TCP and TLS connection
+ * each time. The pool limits can be configured with the
+ * <code>auth-http-client-max-connections</code> and
+ * <code>auth-http-client-max-connections-per-route</code> configuration
+ * properties.
+ * <p>
+ * A client that is created for an application session (see
+ * {@link #HttpClient(WApplication)}) executes requests on a shared worker pool,
+ * and posts the {@link #done()} signal back into the session (using
+ * {@link WtServlet#post(WApplication, Runnable, Runnable)}), so that the
+ * session is not blocked during the exchange. Otherwise, requests are executed
+ * synchronously, and {@link #done()} is emitted before the request method
+ * returns.
+ */
 class HttpClient {
 	private static Logger logger = LoggerFactory.getLogger(HttpClient.class);
-	
-	private org.apache.http.impl.client.DefaultHttpClient httpClient = new org.apache.http.impl.client.DefaultHttpClient();
-	
+
+	private static final int DEFAULT_MAX_CONNECTIONS = 100;
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+	private static DefaultHttpClient sharedClient_;
+	private static ExecutorService workers_;
+
+	private Executor completionExecutor_;
+	private int connectTimeout_ = 0;
+	private int readTimeout_ = 0;
+	private int maximumResponseSize_ = 0;
+
 	private Signal2<Exception, HttpMessage> done = new Signal2<Exception, HttpMessage>();
-	
+
+	/**
+	 * Creates a client that executes requests synchronously.
+	 */
 	public HttpClient() {
-		
+	}
+
+	/**
+	 * Creates a client that executes requests asynchronously, and posts the
+	 * completion into the session of an application.
+	 * <p>
+	 * The application should have server push enabled (see
+	 * {@link WApplication#enableUpdates(boolean)}) to propagate changes made
+	 * on completion. If <code>app</code> is <code>null</code> or not bound to a
+	 * server, requests are executed synchronously.
+	 */
+	public HttpClient(final WApplication app) {
+		if (app != null && app.getEnvironment().getServer() != null) {
+			final WtServlet server = app.getEnvironment().getServer();
+			completionExecutor_ = (Runnable r) -> server.post(app, r, null);
+		}
+	}
+
+	/**
+	 * Creates a client that executes requests asynchronously, and runs the
+	 * completion on the given executor.
+	 */
+	HttpClient(Executor completionExecutor) {
+		completionExecutor_ = completionExecutor;
 	}
 
 	public void get(String url) {
 		HttpGet get = new HttpGet(url);
-		get(get);
+		execute(get);
 	}
-	
+
 	public void get(String url, List<Header> headers) {
 		HttpGet get = new HttpGet(url);
 		Header[] headersArray = new Header[headers.size()];
 		headers.toArray(headersArray);
 		get.setHeaders(headersArray);
-		get(get);
+		execute(get);
 	}
-	
-	private void get(HttpGet get) {
-		try {
-			HttpResponse response = httpClient.execute(get);
-			
-			done.trigger(null, new HttpMessage(response));
-		} catch (ClientProtocolException e) {
-			logger.info("Exception in get({})", get.getURI().toString(), e);
-			done.trigger(e, null);
-		} catch (IOException e) {
-			logger.info("Exception in get({})", get.getURI().toString(), e);
-			done.trigger(e, null);
-		}
-	}
-	
+
 	public void post(String url, HttpMessage message) {
 		HttpPost post = new HttpPost(url);
 		try {
 			for (Header h : message.getHeaders())
 				post.addHeader(h);
-			post.setEntity(new StringEntity(message.getBody()));
-
-			HttpResponse answer = httpClient.execute(post);
-			done.trigger(null, new HttpMessage(answer));
-		} catch (ClientProtocolException e) {
-			logger.info("Exception in post({})", url, e);
-			done.trigger(e, null);
+			post.setEntity(new StringEntity(message.getBody(), "UTF-8"));
 		} catch (IOException e) {
 			logger.info("Exception in post({})", url, e);
 			done.trigger(e, null);
+			return;
 		}
+
+		execute(post);
 	}
 
+	/**
+	 * Sets both the connect and the read timeout.
+	 */
 	public void setTimeout(Duration timeout) {
-		HttpParams params = httpClient.getParams();
-		HttpConnectionParams.setConnectionTimeout(params, (int)timeout.toMillis());
+		setConnectTimeout(timeout);
+		setReadTimeout(timeout);
 	}
 
-	public void setMaximumResponseSize(int i) {
+	public void setConnectTimeout(Duration timeout) {
+		connectTimeout_ = (int)timeout.toMillis();
+	}
+
+	public void setReadTimeout(Duration timeout) {
+		readTimeout_ = (int)timeout.toMillis();
+	}
+
+	/**
+	 * Sets the maximum size of a response body. A response that is larger
+	 * results in an error. A value of 0 means no limit.
+	 */
+	public void setMaximumResponseSize(int bytes) {
+		maximumResponseSize_ = bytes;
+	}
 
+	/**
+	 * Returns whether requests are executed asynchronously.
+	 */
+	public boolean isAsynchronous() {
+		return completionExecutor_ != null;
 	}
-	
+
 	public Signal2<Exception, HttpMessage> done() {
 		return done;
 	}
 
+	private void execute(final HttpUriRequest request) {
+		HttpParams params = request.getParams();
+		HttpConnectionParams.setConnectionTimeout(params, connectTimeout_);
+		HttpConnectionParams.setSoTimeout(params, readTimeout_);
+
+		if (completionExecutor_ == null) {
+			complete(request);
+		} else {
+			getWorkers().execute(() -> {
+				HttpMessage response = null;
+				Exception error = null;
+				try {
+					response = doExecute(request);
+				} catch (IOException e) {
+					logger.info("Exception in {}({})", request.getMethod(), request.getURI(), e);
+					error = e;
+				}
+				final HttpMessage r = response;
+				final Exception e = error;
+				completionExecutor_.execute(() -> done.trigger(e, r));
+			});
+		}
+	}
+
+	private void complete(HttpUriRequest request) {
+		HttpMessage response;
+		try {
+			response = doExecute(request);
+		} catch (IOException e) {
+			logger.info("Exception in {}({})", request.getMethod(), request.getURI(), e);
+			done.trigger(e, null);
+			return;
+		}
+		done.trigger(null, response);
+	}
+
+	private HttpMessage doExecute(HttpUriRequest request) throws IOException {
+		HttpResponse response;
+		try {
+			response = getSharedClient().execute(request);
+		} catch (IOException e) {
+			request.abort();
+			throw e;
+		} catch (RuntimeException e) {
+			request.abort();
+			throw new IOException(e);
+		}
+
+		HttpEntity entity = response.getEntity();
+		try {
+			String body = "";
+			if (entity != null) {
+				String charset = EntityUtils.getContentCharSet(entity);
+				body = new String(readBody(entity), charset != null ? charset : "UTF-8");
+			}
+			return new HttpMessage(response, body);
+		} catch (IOException e) {
+			request.abort();
+			throw e;
+		}
+	}
+
+	private byte[] readBody(HttpEntity entity) throws IOException {
+		long length = entity.getContentLength();
+		if (maximumResponseSize_ > 0 && length > maximumResponseSize_)
+			throw new IOException("Response too large: " + length + " bytes");
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream(length > 0 && length < 64 * 1024 ? (int)length : 4096);
+		InputStream in = entity.getContent();
+		try {
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				result.write(buffer, 0, n);
+				if (maximumResponseSize_ > 0 && result.size() > maximumResponseSize_)
+					throw new IOException("Response exceeds " + maximumResponseSize_ + " bytes");
+			}
+		} finally {
+			in.close();
+		}
+		return result.toByteArray();
+	}
+
+	static synchronized DefaultHttpClient getSharedClient() {
+		if (sharedClient_ == null) {
+			SchemeRegistry schemes = new SchemeRegistry();
+			schemes.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+			schemes.register(new Scheme("https", 443, SSLSocketFactory.getSocketFactory()));
+
+			ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager(schemes);
+			connectionManager.setMaxTotal(readIntProperty("auth-http-client-max-connections", DEFAULT_MAX_CONNECTIONS));
+			connectionManager.setDefaultMaxPerRoute(readIntProperty("auth-http-client-max-connections-per-route",
+					DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+
+			sharedClient_ = new DefaultHttpClient(connectionManager);
+		}
+
+		return sharedClient_;
+	}
+
+	private static synchronized ExecutorService getWorkers() {
+		if (workers_ == null) {
+			final AtomicInteger count = new AtomicInteger();
+			ThreadFactory factory = (Runnable r) -> {
+				Thread t = new Thread(r, "jwt-auth-http-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			};
+			int size = readIntProperty("auth-http-client-max-connections", DEFAULT_MAX_CONNECTIONS);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), factory);
+			executor.allowCoreThreadTimeOut(true);
+			workers_ = executor;
+		}
+
+		return workers_;
+	}
+
+	private static int readIntProperty(String name, int defaultValue) {
+		String v = WApplication.readConfigurationProperty(name, null);
+		if (v == null)
+			return defaultValue;
+
+		try {
+			return Integer.parseInt(v.trim());
+		} catch (NumberFormatException e) {
+			logger.error("Invalid value for '{}': {}", name, v);
+			return defaultValue;
+		}
+	}
+
 	public static boolean parseUrl(String urlString, URL parsedUrl) {
 		try {
 			java.net.URL url = new java.net.URL(urlString);
-			
+
 			parsedUrl.host = url.getHost();
 			parsedUrl.path = url.getPath();
 			parsedUrl.port = url.getPort();
 			parsedUrl.protocol = url.getProtocol();
-			
+
 			return true;
 		} catch (MalformedURLException e) {
 			logger.error("Illegally formed URL: " + urlString);
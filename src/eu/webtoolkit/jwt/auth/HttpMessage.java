@@ -1,20 +1,13 @@
 package eu.webtoolkit.jwt.auth;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.message.BasicHeader;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 class HttpMessage {
-	private static final Logger logger = LoggerFactory.getLogger(HttpMessage.class);
-	
 	HttpMessage() {
 		headers_ = new ArrayList<Header>();
 		status_ = -1;
@@ -25,23 +18,12 @@ class HttpMessage {
 		status_ = -1;
 	}
 	
-	HttpMessage(HttpResponse response) {
+	HttpMessage(HttpResponse response, String body) {
 		headers_ = new ArrayList<Header>();
 		for (Header h : response.getAllHeaders())
 			headers_.add(h);
 		status_ = response.getStatusLine().getStatusCode();
-		
-		try {
-			BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line; 
-			while ((line = rd.readLine()) != null) { 
-				addBodyText(line);
-			}
-		} catch (IllegalStateException e) {
-			logger.info("HttpMessage(HttpResponse): illegal state", e);
-		} catch (IOException e) {
-			logger.info("HttpMessage(HttpResponse): IOException", e);
-		}
+		addBodyText(body);
 	}
 
 	void setStatus(int status) {
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2026 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.auth;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.webtoolkit.jwt.WApplication;
+import eu.webtoolkit.jwt.WDate;
+
+/**
+ * An authentication throttle that keeps its state in memory.
+ * <p>
+ * The default {@link AuthThrottle} stores the number of failed attempts and
+ * the time of the last attempt in the user database, which means that every
+ * attempt results in a database read and write. This throttle instead keeps
+ * sliding-window failure counters in memory, both per user and per client
+ * address (as reported by {@link eu.webtoolkit.jwt.WEnvironment#getClientAddress()}).
+ * The delay for a next attempt is the largest of the delays computed for the
+ * user and for the client address.
+ * <p>
+ * The counters are kept in lock-striped, bounded maps: the least recently used
+ * entries are evicted when a map is full, and entries for which no attempt was
+ * made for two windows expire.
+ * <p>
+ * Because the state is kept in memory, it is not shared between different
+ * servers, and is lost when the server restarts. When
+ * {@link #setPersistTransitions(boolean) persisting transitions} is enabled
+ * (the default), the user database is still updated, but only when the
+ * throttling delay for a user changes (e.g. after the first failed attempt,
+ * or on a successful login after failed attempts), rather than on every
+ * attempt.
+ * <p>
+ * Usage:
+ * <pre>
+ * {@code
+ * passwordService.setPasswordThrottle(new MemoryAuthThrottle());
+ * }
+ * </pre>
+ */
+public class MemoryAuthThrottle extends AuthThrottle {
+	private static Logger logger = LoggerFactory.getLogger(MemoryAuthThrottle.class);
+
+	private static final int STRIPES = 64;
+	private static final int ADDRESS_TOLERANCE = 5;
+
+	private final Stripe[] users_;
+	private final Stripe[] addresses_;
+	private long window_;
+	private boolean persistTransitions_;
+
+	/**
+	 * Creates a throttle with a window of 15 minutes, tracking at most 100000
+	 * users and 100000 client addresses.
+	 */
+	public MemoryAuthThrottle() {
+		this(100000, 15 * 60);
+	}
+
+	/**
+	 * Creates a throttle.
+	 *
+	 * @param maxEntries the maximum number of users (and client addresses) that
+	 *        are tracked
+	 * @param windowSeconds the length of the sliding window in which failed
+	 *        attempts are counted
+	 */
+	public MemoryAuthThrottle(int maxEntries, int windowSeconds) {
+		users_ = createStripes(maxEntries);
+		addresses_ = createStripes(maxEntries);
+		window_ = windowSeconds * 1000L;
+		persistTransitions_ = true;
+	}
+
+	/**
+	 * Sets whether changes in the throttling state are persisted in the user
+	 * database.
+	 * <p>
+	 * The default value is <code>true</code>.
+	 */
+	public void setPersistTransitions(boolean enabled) {
+		persistTransitions_ = enabled;
+	}
+
+	/**
+	 * Returns whether changes in the throttling state are persisted.
+	 *
+	 * @see #setPersistTransitions(boolean)
+	 */
+	public boolean isPersistTransitions() {
+		return persistTransitions_;
+	}
+
+	@Override
+	public int delayForNextAttempt(User user) {
+		int delay = delayForNextAttempt(user.getId(), getClientAddress());
+
+		if (delay > 0)
+			logger.warn("secure:delayForNextAttempt(): {} seconds for user: {}", delay, user.getId());
+
+		return delay;
+	}
+
+	/**
+	 * Returns the amount of seconds to wait for the next authentication attempt.
+	 *
+	 * @param userId the user id
+	 * @param clientAddress the client address, or an empty string if unknown
+	 */
+	public int delayForNextAttempt(String userId, String clientAddress) {
+		long now = now();
+		int delay = delay(users_, userId, now, false);
+		if (clientAddress.length() != 0)
+			delay = Math.max(delay, delay(addresses_, clientAddress, now, true));
+
+		return delay;
+	}
+
+	@Override
+	public void recordAttempt(User user, boolean success) {
+		int failures = recordAttempt(user.getId(), getClientAddress(), success);
+
+		if (failures >= 0 && persistTransitions_ && user.getDatabase() != null) {
+			AbstractUserDatabase db = user.getDatabase();
+			db.setFailedLoginAttempts(user, failures);
+			db.setLastLoginAttempt(user, WDate.getCurrentServerDate());
+		}
+	}
+
+	/**
+	 * Records the result of an authentication attempt.
+	 * <p>
+	 * Returns the new number of failed attempts for the user if the throttling
+	 * delay for the user changed as a result of this attempt, or -1 otherwise.
+	 *
+	 * @param userId the user id
+	 * @param clientAddress the client address, or an empty string if unknown
+	 * @param success whether the attempt was successful
+	 */
+	public int recordAttempt(String userId, String clientAddress, boolean success) {
+		long now = now();
+
+		if (clientAddress.length() != 0 && !success) {
+			Stripe s = stripe(addresses_, clientAddress);
+			synchronized (s) {
+				s.getOrCreate(clientAddress, now, window_).fail(now, window_);
+			}
+		}
+
+		Stripe s = stripe(users_, userId);
+		synchronized (s) {
+			Counter c;
+			int before, after;
+			if (success) {
+				c = s.remove(userId);
+				if (c == null)
+					return -1;
+				before = c.failures(now, window_);
+				after = 0;
+			} else {
+				c = s.getOrCreate(userId, now, window_);
+				before = c.failures(now, window_);
+				c.fail(now, window_);
+				after = c.failures(now, window_);
+			}
+
+			if (getAuthenticationThrottle(before) != getAuthenticationThrottle(after))
+				return after;
+			else
+				return -1;
+		}
+	}
+
+	/**
+	 * Returns the number of seconds to wait between two attempts from the same
+	 * client address.
+	 * <p>
+	 * Since different users may share a client address, the default
+	 * implementation tolerates five times as many failed attempts from a
+	 * client address as from a single user, using
+	 * {@link #getAuthenticationThrottle(int)} for the delay.
+	 */
+	protected int getAddressThrottle(int failedAttempts) {
+		return getAuthenticationThrottle(failedAttempts / ADDRESS_TOLERANCE);
+	}
+
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	private int delay(Stripe[] stripes, String key, long now, boolean address) {
+		Stripe s = stripe(stripes, key);
+		int failures;
+		long lastAttempt;
+		synchronized (s) {
+			Counter c = s.lookup(key, now, window_);
+			if (c == null)
+				return 0;
+			failures = c.failures(now, window_);
+			lastAttempt = c.lastAttempt;
+		}
+
+		int throttle = address ? getAddressThrottle(failures) : getAuthenticationThrottle(failures);
+		int diff = (int) ((now - lastAttempt) / 1000);
+		return Math.max(0, throttle - diff);
+	}
+
+	private String getClientAddress() {
+		WApplication app = WApplication.getInstance();
+		if (app != null)
+			return app.getEnvironment().getClientAddress();
+		else
+			return "";
+	}
+
+	private static Stripe stripe(Stripe[] stripes, String key) {
+		int h = key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	private static Stripe[] createStripes(int maxEntries) {
+		Stripe[] result = new Stripe[STRIPES];
+		int capacity = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+		for (int i = 0; i < STRIPES; ++i)
+			result[i] = new Stripe(capacity);
+		return result;
+	}
+
+	/*
+	 * Failures counted in a sliding window, approximated using the count of the
+	 * current and the previous window.
+	 */
+	private static final class Counter {
+		long windowStart;
+		long lastAttempt;
+		int previous;
+		int current;
+
+		Counter(long now) {
+			windowStart = now;
+			lastAttempt = now;
+		}
+
+		void fail(long now, long window) {
+			roll(now, window);
+			++current;
+			lastAttempt = now;
+		}
+
+		int failures(long now, long window) {
+			roll(now, window);
+			double weight = 1.0 - (double) (now - windowStart) / window;
+			return current + (int) Math.ceil(previous * weight);
+		}
+
+		boolean isExpired(long now, long window) {
+			return now - lastAttempt >= 2 * window;
+		}
+
+		private void roll(long now, long window) {
+			long elapsed = now - windowStart;
+			if (elapsed >= 2 * window) {
+				previous = 0;
+				current = 0;
+				windowStart = now;
+			} else if (elapsed >= window) {
+				previous = current;
+				current = 0;
+				windowStart += window;
+			}
+		}
+	}
+
+	private static final class Stripe extends LinkedHashMap<String, Counter> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity_;
+		private long now_;
+		private long window_;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, true);
+			capacity_ = capacity;
+		}
+
+		Counter lookup(String key, long now, long window) {
+			now_ = now;
+			window_ = window;
+			Counter c = get(key);
+			if (c != null && c.isExpired(now, window)) {
+				remove(key);
+				return null;
+			}
+			return c;
+		}
+
+		Counter getOrCreate(String key, long now, long window) {
+			now_ = now;
+			window_ = window;
+			Counter c = get(key);
+			if (c == null || c.isExpired(now, window)) {
+				c = new Counter(now);
+				put(key, c);
+			}
+			return c;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+			return size() > capacity_ || eldest.getValue().isExpired(now_, window_);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package eu.webtoolkit.jwt.auth.jpa;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 import eu.webtoolkit.jwt.auth.AccountStatus;
 import eu.webtoolkit.jwt.auth.AuthService;
@@ -36,6 +37,10 @@ import eu.webtoolkit.jwt.auth.User;
  * 
  * The auth1 feature example contains an example mapping file (examples/feature/auth1/src/META-INF/orm.xml),
  * and a Postgres schema file (examples/feature/auth1/src/META-INF/schema.postgres.sql).
+ * Note that the email lookups use the {@link #getNormalizedEmail() normalized email}
+ * property, which should be mapped to an indexed column, and that {@link UserDatabase}
+ * uses the named queries defined in this mapping file when they are available. An existing database
+ * can be migrated with examples/feature/auth1/src/META-INF/migrate.postgres.sql.
  * <br/>
  * <br/>
  *
@@ -50,6 +55,7 @@ public class AuthInfo {
 		emailTokenRole = EmailTokenRole.VerifyEmail;
 		
 		email = ""; 
+		normalizedEmail = "";
 		unverifiedEmail = "";
 		emailToken = "";
 		
@@ -131,6 +137,7 @@ public class AuthInfo {
 	 */
 	public void setEmail(String email) {
 		this.email = email;
+		this.normalizedEmail = normalizeEmail(email);
 	}
 
 	/**
@@ -142,6 +149,30 @@ public class AuthInfo {
 		return email;
 	}
 
+	/**
+	 * Returns the normalized (lower case) email address.
+	 * 
+	 * This is used to look up users by email address without having to
+	 * apply a function on the email column, so that an index on this column
+	 * can be used. It is updated by {@link #setEmail(String email)}.
+	 */
+	public String getNormalizedEmail() {
+		return normalizedEmail;
+	}
+
+	public void setNormalizedEmail(String normalizedEmail) {
+		this.normalizedEmail = normalizedEmail;
+	}
+
+	/**
+	 * Returns the normalized form of an email address.
+	 * 
+	 * @see #getNormalizedEmail()
+	 */
+	public static String normalizeEmail(String email) {
+		return email == null ? null : email.toLowerCase(Locale.ROOT);
+	}
+
 	/**
 	 * Sets the unverified email address.
 	 */
@@ -306,6 +337,7 @@ public class AuthInfo {
 	private Date lastLoginAttempt;
 
 	private String email; 
+	private String normalizedEmail;
 	private String unverifiedEmail;
 	private String emailToken;
 	private Date emailTokenExpires;
@@ -0,0 +1,99 @@
+package eu.webtoolkit.jwt.auth.jpa;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache for authentication token lookups.
+ *
+ * With authentication tokens enabled (remember-me), every new session
+ * looks up the user that owns the token that was presented in a cookie,
+ * using {@link UserDatabase#findWithAuthToken(String hash)}. This cache maps
+ * token hashes to the id of the user that owns it, so that these lookups do
+ * not need a database query.
+ *
+ * A cache is typically shared by all {@link UserDatabase} instances of an
+ * application (see {@link UserDatabase#setAuthTokenCache(AuthTokenCache cache)}).
+ * Entries are invalidated when a token is removed through one of
+ * these databases. The least recently used entries are evicted when the
+ * cache is full.
+ *
+ * This class is thread-safe.
+ */
+public class AuthTokenCache {
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize the maximum number of tokens in the cache.
+	 */
+	public AuthTokenCache(final int maxSize) {
+		entries_ = new LinkedHashMap<String, CachedToken>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the id of the user that owns a token.
+	 *
+	 * Returns <code>null</code> if the token is not in the cache, or if it
+	 * has expired.
+	 */
+	public synchronized String get(String hash, Date now) {
+		CachedToken e = entries_.get(hash);
+		if (e == null)
+			return null;
+
+		if (e.expires != null && !e.expires.after(now)) {
+			entries_.remove(hash);
+			return null;
+		}
+
+		return e.userId;
+	}
+
+	/**
+	 * Adds a token to the cache.
+	 */
+	public synchronized void put(String hash, String userId, Date expires) {
+		entries_.put(hash, new CachedToken(userId, expires));
+	}
+
+	/**
+	 * Removes a token from the cache.
+	 */
+	public synchronized void remove(String hash) {
+		entries_.remove(hash);
+	}
+
+	/**
+	 * Removes all tokens from the cache.
+	 */
+	public synchronized void clear() {
+		entries_.clear();
+	}
+
+	/**
+	 * Returns the number of tokens in the cache.
+	 */
+	public synchronized int size() {
+		return entries_.size();
+	}
+
+	private static class CachedToken {
+		CachedToken(String userId, Date expires) {
+			this.userId = userId;
+			this.expires = expires;
+		}
+
+		final String userId;
+		final Date expires;
+	}
+
+	private final LinkedHashMap<String, CachedToken> entries_;
+}
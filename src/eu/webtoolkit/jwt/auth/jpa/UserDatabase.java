@@ -1,9 +1,14 @@
 package eu.webtoolkit.jwt.auth.jpa;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,8 +25,44 @@ import eu.webtoolkit.jwt.auth.User;
 
 /**
  * A JPA implementation for user authentication data.
+ * 
+ * The lookups by email address, email token and auth token use the following
+ * named queries when they are defined in the mapping of {@link AuthInfo} and
+ * {@link AuthToken} (see the auth1 feature example's orm.xml), and otherwise
+ * equivalent inline queries:
+ * <ul>
+ * <li>AuthInfo.findWithEmail: by normalized email (parameter <code>email</code>)</li>
+ * <li>AuthInfo.findWithUnnormalizedEmail: by lower-cased email, for rows of which
+ * the normalized email is empty (parameter <code>email</code>)</li>
+ * <li>AuthInfo.findWithEmailToken: by email token (parameter <code>token</code>)</li>
+ * <li>AuthToken.find: by value (parameter <code>hash</code>)</li>
+ * <li>AuthToken.findValid: by value and not expired (parameters <code>hash</code> and
+ * <code>expiryDate</code>)</li>
+ * <li>AuthToken.remove: deletes by user and value (parameters <code>user_id</code> and
+ * <code>hash</code>)</li>
+ * </ul>
  */
 public class UserDatabase extends AbstractUserDatabase {
+	private static final String FIND_WITH_EMAIL = "AuthInfo.findWithEmail";
+	private static final String FIND_WITH_UNNORMALIZED_EMAIL = "AuthInfo.findWithUnnormalizedEmail";
+	private static final String FIND_WITH_EMAIL_TOKEN = "AuthInfo.findWithEmailToken";
+	private static final String FIND_AUTH_TOKEN = "AuthToken.find";
+	private static final String FIND_VALID_AUTH_TOKEN = "AuthToken.findValid";
+	private static final String REMOVE_AUTH_TOKEN = "AuthToken.remove";
+
+	private static final String FIND_WITH_EMAIL_QUERY =
+		"select a_info from AuthInfo a_info where a_info.normalizedEmail = :email";
+	private static final String FIND_WITH_UNNORMALIZED_EMAIL_QUERY =
+		"select a_info from AuthInfo a_info where a_info.normalizedEmail = '' and lower(a_info.email) = :email";
+	private static final String FIND_WITH_EMAIL_TOKEN_QUERY =
+		"select a_info from AuthInfo a_info where a_info.emailToken = :token";
+	private static final String FIND_AUTH_TOKEN_QUERY =
+		"select a_token from AuthToken a_token where a_token.value = :hash";
+	private static final String FIND_VALID_AUTH_TOKEN_QUERY =
+		"select a_token from AuthToken a_token where a_token.value = :hash and a_token.expiryDate > :expiryDate";
+	private static final String REMOVE_AUTH_TOKEN_QUERY =
+		"delete from AuthToken a_token where a_token.authInfo.id = :user_id and a_token.value = :hash";
+
 	private int openTransactions = 0;
 	private boolean commitTransaction = true;
 	
@@ -41,6 +82,30 @@ public class UserDatabase extends AbstractUserDatabase {
 		entityManager_ = entityManager;
 		authService_ = authService;
 		maxAuthTokensPerUser_ = 50;
+		authTokenCache_ = null;
+	}
+
+	/**
+	 * Sets a cache for authentication token lookups.
+	 * 
+	 * The same cache should be shared by all databases that operate on
+	 * the same data, so that removing a token invalidates the
+	 * cached lookup for all of them. Tokens that are removed directly in the
+	 * database are however not noticed by the cache.
+	 * 
+	 * The default value is <code>null</code> (no cache).
+	 */
+	public void setAuthTokenCache(AuthTokenCache cache) {
+		authTokenCache_ = cache;
+	}
+
+	/**
+	 * Returns the cache for authentication token lookups.
+	 * 
+	 * @see #setAuthTokenCache(AuthTokenCache cache)
+	 */
+	public AuthTokenCache getAuthTokenCache() {
+		return authTokenCache_;
 	}
 
 	@Override
@@ -176,10 +241,7 @@ public class UserDatabase extends AbstractUserDatabase {
 
 	@Override
 	public boolean setEmail(User user, String address) {
-		Query query = entityManager_
-				.createQuery("select a_info from AuthInfo a_info where LOWER(email) = LOWER(:email)");
-		query.setParameter("email", address);
-		if (query.getResultList().size() != 0) {
+		if (findAuthInfosWithEmail(address).size() != 0) {
 			return false;
 		} else {
 			AuthInfo ai = findAuthInfo(user.getId());
@@ -208,16 +270,37 @@ public class UserDatabase extends AbstractUserDatabase {
 
 	@Override
 	public User findWithEmail(String address) {
-		Query query = entityManager_
-				.createQuery("select a_info from AuthInfo a_info where LOWER(email) = LOWER(:email)");
-		query.setParameter("email", address);
-		List<AuthInfo> result = (List<AuthInfo>) query.getResultList();
+		List<AuthInfo> result = findAuthInfosWithEmail(address);
 		if (result.size() == 1)
 			return new User(result.get(0).getId() + "", this);
 		else
 			return new User();
 	}
 
+	/*
+	 * Finds the users with an email address, by their normalized email.
+	 * 
+	 * Users that were stored before the normalized email was introduced have
+	 * an empty normalized email: these are found by their email instead, and
+	 * their normalized email is filled in.
+	 */
+	private List<AuthInfo> findAuthInfosWithEmail(String address) {
+		String email = AuthInfo.normalizeEmail(address);
+
+		TypedQuery<AuthInfo> query = createQuery(FIND_WITH_EMAIL, FIND_WITH_EMAIL_QUERY, AuthInfo.class);
+		query.setParameter("email", email);
+		List<AuthInfo> result = query.getResultList();
+		if (result.size() != 0 || email == null || email.length() == 0)
+			return result;
+
+		query = createQuery(FIND_WITH_UNNORMALIZED_EMAIL, FIND_WITH_UNNORMALIZED_EMAIL_QUERY, AuthInfo.class);
+		query.setParameter("email", email);
+		result = query.getResultList();
+		for (AuthInfo ai : result)
+			ai.setNormalizedEmail(AuthInfo.normalizeEmail(ai.getEmail()));
+		return result;
+	}
+
 	@Override
 	public void setEmailToken(User user, Token token, EmailTokenRole role) {
 		Transaction t = startTransaction();
@@ -242,10 +325,9 @@ public class UserDatabase extends AbstractUserDatabase {
 
 	@Override
 	public User findWithEmailToken(String token) {
-		Query query = entityManager_
-				.createQuery("select a_info from AuthInfo a_info where email_token = :token");
+		TypedQuery<AuthInfo> query = createQuery(FIND_WITH_EMAIL_TOKEN, FIND_WITH_EMAIL_TOKEN_QUERY, AuthInfo.class);
 		query.setParameter("token", token);
-		List<AuthInfo> result = (List<AuthInfo>) query.getResultList();
+		List<AuthInfo> result = query.getResultList();
 		if (result.size() == 1)
 			return new User(result.get(0).getId() + "", this);
 		else
@@ -256,9 +338,8 @@ public class UserDatabase extends AbstractUserDatabase {
 	public void addAuthToken(User user, Token token) {
 		// This should be statistically very unlikely but also a big
 		// security problem if we do not detect it ...
-		Query query = entityManager_
-				.createQuery("select a_token from AuthToken a_token where value = :token_hash");
-		query.setParameter("token_hash", token.getHash());
+		TypedQuery<AuthToken> query = createQuery(FIND_AUTH_TOKEN, FIND_AUTH_TOKEN_QUERY, AuthToken.class);
+		query.setParameter("hash", token.getHash());
 		if (query.getResultList().size() > 0)
 			throw new RuntimeException("Token hash collision");
 
@@ -276,32 +357,45 @@ public class UserDatabase extends AbstractUserDatabase {
 	
 	@Override
 	public void removeAuthToken(User user, String hash) {
-		String q = "delete from AuthToken a_token"
-				+ "	where a_token.authInfo.id = :user_id"
-				+ "		and a_token.value = :hash";
-
-		Query query = entityManager_.createQuery(q);
+		Query query = createQuery(REMOVE_AUTH_TOKEN, REMOVE_AUTH_TOKEN_QUERY);
 		query.setParameter("user_id", Long.parseLong(user.getId()));
 		query.setParameter("hash", hash);
 		query.executeUpdate();
+
+		/*
+		 * A concurrent lookup may still find the token until the removal is
+		 * committed, hence it is removed from the cache again at the end of
+		 * the transaction.
+		 */
+		if (authTokenCache_ != null) {
+			authTokenCache_.remove(hash);
+			if (openTransactions > 0)
+				removedAuthTokens_.add(hash);
+		}
 	}
 
 	@Override
 	public User findWithAuthToken(String hash) {
-		String q = "select a_info " 
-				+ " from AuthToken a_token,  AuthInfo a_info"
-				+ "	where a_token.value = :hash"
-				+ "		and a_token.expiryDate > :expiryDate"
-				+ "	 	and a_token.authInfo.id = a_info.id";
+		Date now = WDate.getCurrentDate().getDate();
 
-		Query query = entityManager_.createQuery(q);
-		query.setParameter("hash", hash);
-		query.setParameter("expiryDate", WDate.getCurrentDate().getDate());
-		List<AuthInfo> ai = (List<AuthInfo>) query.getResultList();
+		if (authTokenCache_ != null) {
+			String id = authTokenCache_.get(hash, now);
+			if (id != null)
+				return new User(id, this);
+		}
 
-		if (ai.size() == 1)
-			return new User(ai.get(0).getId() + "", this);
-		else
+		TypedQuery<AuthToken> query = createQuery(FIND_VALID_AUTH_TOKEN, FIND_VALID_AUTH_TOKEN_QUERY, AuthToken.class);
+		query.setParameter("hash", hash);
+		query.setParameter("expiryDate", now);
+		List<AuthToken> result = query.getResultList();
+
+		if (result.size() == 1) {
+			AuthToken at = result.get(0);
+			String id = at.getAuthInfo().getId() + "";
+			if (authTokenCache_ != null)
+				authTokenCache_.put(hash, id, at.getExpiryDate());
+			return new User(id, this);
+		} else
 			return new User();
 	}
 
@@ -332,6 +426,50 @@ public class UserDatabase extends AbstractUserDatabase {
 	private EntityManager entityManager_;
 	private AuthService authService_;
 	private int maxAuthTokensPerUser_;
+	private AuthTokenCache authTokenCache_;
+	private List<String> removedAuthTokens_ = new ArrayList<String>();
+	private Map<String, Boolean> namedQueries_ = new HashMap<String, Boolean>();
+
+	/*
+	 * Creates a named query, or the equivalent inline query when the named
+	 * query is not defined in the mapping.
+	 */
+	private <T> TypedQuery<T> createQuery(String name, String jpql, Class<T> resultClass) {
+		if (hasNamedQuery(name))
+			return entityManager_.createNamedQuery(name, resultClass);
+		else
+			return entityManager_.createQuery(jpql, resultClass);
+	}
+
+	private Query createQuery(String name, String jpql) {
+		if (hasNamedQuery(name))
+			return entityManager_.createNamedQuery(name);
+		else
+			return entityManager_.createQuery(jpql);
+	}
+
+	/*
+	 * Checks whether a named query is defined. This uses a separate entity
+	 * manager, since a failing createNamedQuery() may mark the current
+	 * transaction for rollback.
+	 */
+	private boolean hasNamedQuery(String name) {
+		Boolean result = namedQueries_.get(name);
+		if (result == null) {
+			EntityManager em = entityManager_.getEntityManagerFactory().createEntityManager();
+			try {
+				em.createNamedQuery(name);
+				result = true;
+			} catch (IllegalArgumentException e) {
+				logger.debug("Named query {} is not defined, using an inline query", name);
+				result = false;
+			} finally {
+				em.close();
+			}
+			namedQueries_.put(name, result);
+		}
+		return result;
+	}
 
 	private class TransactionImpl implements Transaction {
 		private UserDatabase userDatabase;
@@ -371,10 +509,17 @@ public class UserDatabase extends AbstractUserDatabase {
 		}
 		
 		private void endTransaction() {
-			if (userDatabase.commitTransaction)
-				entityManager_.getTransaction().commit();
-			else
-				entityManager_.getTransaction().rollback();
+			try {
+				if (userDatabase.commitTransaction)
+					entityManager_.getTransaction().commit();
+				else
+					entityManager_.getTransaction().rollback();
+			} finally {
+				if (authTokenCache_ != null)
+					for (String hash : removedAuthTokens_)
+						authTokenCache_.remove(hash);
+				removedAuthTokens_.clear();
+			}
 		}
 
 		public void close() {
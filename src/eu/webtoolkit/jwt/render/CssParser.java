@@ -2,7 +2,9 @@ package eu.webtoolkit.jwt.render;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -17,19 +19,30 @@ import org.slf4j.LoggerFactory;
 public class CssParser {
 	private static final Logger logger = LoggerFactory.getLogger(CssParser.class);
 
+	private static final int MAX_CACHED_STYLESHEETS = 64;
+
+	private static final Map<String, ParseResult> cache_ = new LinkedHashMap<String, ParseResult>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ParseResult> eldest) {
+			return size() > MAX_CACHED_STYLESHEETS;
+		}
+	};
+
 	private ErrorListener errorListener_ = new ErrorListener();
 
 	static final class Listener extends Css22BaseListener {
 		private SimpleSelectorImpl currentSimpleSelector = new SimpleSelectorImpl();
 		private SelectorImpl currentSelector = new SelectorImpl();
 		private List<SelectorImpl> currentSelectorList = new ArrayList<>();
-		private StyleSheetImpl currentStylesheet = new StyleSheetImpl();
+		private List<RulesetImpl> currentRulesets = new ArrayList<>();
 
 		Listener() {
 		}
 
 		StyleSheetImpl getCurrentStylesheet() {
-			return currentStylesheet;
+			return new StyleSheetImpl(currentRulesets);
 		}
 
 		@Override
@@ -64,10 +77,7 @@ public class CssParser {
 		@Override
 		public void exitDeclarationBlock(Css22Parser.DeclarationBlockContext ctx) {
 			for (SelectorImpl selector : currentSelectorList) {
-				RulesetImpl r = new RulesetImpl();
-				r.block_.declarationString_ = ctx.getText();
-				r.selector_ = selector;
-				currentStylesheet.rulesetArray_.add(r);
+				currentRulesets.add(new RulesetImpl(selector, new DeclarationBlockImpl(ctx.getText())));
 			}
 			currentSelectorList.clear();
 		}
@@ -122,6 +132,49 @@ public class CssParser {
 		return result;
 	}
 
+	/**
+	 * Parses a stylesheet, reusing the result of a previous parse of the same contents.
+	 *
+	 * Parsed stylesheets are immutable, and are shared between all renderers in
+	 * the process. A bounded number of recently used stylesheets (and parse
+	 * errors) are kept.
+	 */
+	public StyleSheet parseCached(CharSequence stylesheetContents) {
+		String contents = stylesheetContents.toString();
+
+		synchronized (cache_) {
+			ParseResult r = cache_.get(contents);
+			if (r != null) {
+				errorListener_.lastError = r.error;
+				return r.styleSheet;
+			}
+		}
+
+		StyleSheet result = parse(contents);
+
+		synchronized (cache_) {
+			cache_.put(contents, new ParseResult(result, getLastError()));
+		}
+
+		return result;
+	}
+
+	static void clearCache() {
+		synchronized (cache_) {
+			cache_.clear();
+		}
+	}
+
+	private static class ParseResult {
+		ParseResult(StyleSheet styleSheet, String error) {
+			this.styleSheet = styleSheet;
+			this.error = error;
+		}
+
+		final StyleSheet styleSheet;
+		final String error;
+	}
+
 	private StyleSheet parse(CharStream stream) throws RecognitionException, ParseCancellationException {
 		errorListener_.reset();
 
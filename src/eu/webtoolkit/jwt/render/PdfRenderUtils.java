@@ -1,5 +1,7 @@
 package eu.webtoolkit.jwt.render;
 
+import java.io.OutputStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,4 +22,21 @@ public class PdfRenderUtils {
 			return null;
 		}
 	}
+
+	/**
+	 * A page that is not part of the document, used to paint the contents of a page
+	 * before the actual page is created.
+	 *
+	 * The contents can then be appended to the actual page using
+	 * {@link Page#append(byte[])}.
+	 */
+	static class ContentPage extends Page {
+		ContentPage(float width, float height) throws Exception {
+			super(new PDF(OutputStream.nullOutputStream()), new float[] { width, height });
+		}
+
+		byte[] getContent() {
+			return buf.toByteArray();
+		}
+	}
 }
@@ -0,0 +1,202 @@
+package eu.webtoolkit.jwt.render;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import eu.webtoolkit.jwt.WFont;
+import eu.webtoolkit.jwt.WPaintDevice;
+import eu.webtoolkit.jwt.WPdfImage;
+import eu.webtoolkit.jwt.WTextItem;
+
+/**
+ * Caches the widths of words, per font, for the inline layout of a {@link Block}.
+ *
+ * The widths of the most recently used words are kept for a bounded number of fonts,
+ * for each paint device that measured them. Fonts are identified by their family,
+ * style, variant, weight and size.
+ *
+ * Missing widths are measured in bulk, using {@link WPaintDevice#measureWords(List)}.
+ * Wrapped text is only computed from the cached widths for a {@link WPdfImage}, whose
+ * word wrapping is known to simply add up the widths of words and spaces. Other devices
+ * are asked to wrap the text themselves.
+ *
+ * This class is not thread-safe.
+ */
+final class WordWidthCache {
+	static final int MAX_FONTS = 16;
+	static final int MAX_WORDS = 4096;
+
+	private static final int BATCH_SIZE = 32;
+
+	private final Map<WPaintDevice, Map<String, FontWidths>> devices_ = new WeakHashMap<WPaintDevice, Map<String, FontWidths>>();
+
+	private WPaintDevice device_;
+	private boolean wrapsWords_;
+	private FontWidths current_;
+
+	/**
+	 * Selects the device and font for subsequent measurements.
+	 *
+	 * The font must be the font that is currently set on the device's painter.
+	 */
+	void select(WPaintDevice device, WFont font) {
+		Map<String, FontWidths> fonts = devices_.get(device);
+		if (fonts == null) {
+			fonts = new LinkedHashMap<String, FontWidths>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, FontWidths> eldest) {
+					return size() > MAX_FONTS;
+				}
+			};
+			devices_.put(device, fonts);
+		}
+
+		String key = getKey(font);
+
+		device_ = device;
+		wrapsWords_ = device.getClass() == WPdfImage.class;
+		current_ = fonts.get(key);
+		if (current_ == null) {
+			current_ = new FontWidths(device.measureText(" ").getWidth());
+			fonts.put(key, current_);
+		}
+	}
+
+	/**
+	 * Returns the width of a single space.
+	 */
+	double getWhitespaceWidth() {
+		return current_.whitespaceWidth;
+	}
+
+	/**
+	 * Returns the width of a word.
+	 */
+	double getWidth(String word) {
+		Double w = current_.words.get(word);
+		if (w != null)
+			return w;
+
+		double result = device_.measureText(word).getWidth();
+		current_.words.put(word, result);
+		return result;
+	}
+
+	/**
+	 * Measures text that is wrapped at word boundaries.
+	 *
+	 * This has the same result as <code>measureText(text.substring(start), maxWidth, true)</code>
+	 * on the device. For a {@link WPdfImage}, it is computed from the cached widths of the
+	 * individual words and spaces, unless the text contains other whitespace than spaces.
+	 */
+	WTextItem measureWrapped(String text, int start, double maxWidth) {
+		if (!wrapsWords_ || maxWidth == -1)
+			return device_.measureText(text.substring(start), maxWidth, true);
+
+		Map<String, Double> words = current_.words;
+		double whitespaceWidth = current_.whitespaceWidth;
+
+		int previousEnd = -1;
+		double previousWidth = 0;
+		double width = 0;
+		int wordStart = start;
+
+		for (int i = start; i < text.length(); ++i) {
+			char c = text.charAt(i);
+			boolean whitespace = Character.isWhitespace(c);
+			if (!whitespace && i != text.length() - 1)
+				continue;
+			if (whitespace && c != ' ')
+				return device_.measureText(text.substring(start), maxWidth, true);
+
+			int wordEnd = whitespace ? i : i + 1;
+			if (wordEnd > wordStart) {
+				Double w = words.get(text.substring(wordStart, wordEnd));
+				if (w == null) {
+					measureBatch(text, wordStart);
+					w = words.get(text.substring(wordStart, wordEnd));
+				}
+				width += w;
+			}
+
+			if (width > maxWidth) {
+				if (previousEnd < 0)
+					return new WTextItem(text.substring(start, i + 1), width);
+				else
+					return new WTextItem(text.substring(start, previousEnd), previousWidth);
+			}
+
+			previousEnd = i + 1;
+			previousWidth = width;
+
+			if (whitespace)
+				width += whitespaceWidth;
+			wordStart = i + 1;
+		}
+
+		return new WTextItem(text.substring(start), width);
+	}
+
+	/**
+	 * Removes all cached widths.
+	 */
+	void clear() {
+		devices_.clear();
+		device_ = null;
+		current_ = null;
+	}
+
+	private void measureBatch(String text, int start) {
+		List<String> missing = new ArrayList<String>(BATCH_SIZE);
+		Map<String, Double> words = current_.words;
+
+		int wordStart = start;
+		for (int i = start; i <= text.length() && missing.size() < BATCH_SIZE; ++i) {
+			if (i == text.length() || Character.isWhitespace(text.charAt(i))) {
+				if (i > wordStart) {
+					String word = text.substring(wordStart, i);
+					if (!words.containsKey(word) && !missing.contains(word))
+						missing.add(word);
+				}
+				wordStart = i + 1;
+			}
+		}
+
+		double[] widths = device_.measureWords(missing);
+		for (int i = 0; i < missing.size(); ++i)
+			words.put(missing.get(i), widths[i]);
+	}
+
+	private static String getKey(WFont font) {
+		StringBuilder key = new StringBuilder();
+		key.append(font.getGenericFamily()).append('|')
+			.append(font.getSpecificFamilies()).append('|')
+			.append(font.getStyle()).append('|')
+			.append(font.getVariant()).append('|')
+			.append(font.getWeight()).append('|')
+			.append(font.getWeightValue()).append('|')
+			.append(font.getSizeLength().getCssText());
+		return key.toString();
+	}
+
+	private static class FontWidths {
+		FontWidths(double whitespaceWidth) {
+			this.whitespaceWidth = whitespaceWidth;
+		}
+
+		final double whitespaceWidth;
+		final Map<String, Double> words = new LinkedHashMap<String, Double>(256, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+				return size() > MAX_WORDS;
+			}
+		};
+	}
+}
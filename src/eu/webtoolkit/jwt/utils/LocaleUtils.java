@@ -1,32 +1,132 @@
 package eu.webtoolkit.jwt.utils;
 
+import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import eu.webtoolkit.jwt.WApplication;
 
 public class LocaleUtils {
 
+	/*
+	 * The number format of a locale, and whether it is a plain format that
+	 * can be formatted and parsed without java.text: grouping of 3 digits,
+	 * at most 3 fraction digits, ASCII digits, and no prefix or suffix other
+	 * than the negative prefix.
+	 *
+	 * A LocaleFormat is shared by all threads: the formats are prototypes
+	 * that must be cloned before use, since NumberFormat is not thread-safe.
+	 */
+	private static final class LocaleFormat {
+		private final NumberFormat format;
+		private final NumberFormat integerFormat;
+		final char decimalPoint;
+		final char groupSeparator;
+		final String negativePrefix;
+		final boolean plain;
+		final boolean plainParse;
+
+		LocaleFormat(Locale locale) {
+			format = NumberFormat.getInstance(locale);
+			integerFormat = (NumberFormat) format.clone();
+			integerFormat.setParseIntegerOnly(true);
+
+			DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+			decimalPoint = symbols.getDecimalSeparator();
+			groupSeparator = symbols.getGroupingSeparator();
+
+			if (format instanceof DecimalFormat) {
+				DecimalFormat df = (DecimalFormat) format;
+				negativePrefix = df.getNegativePrefix();
+				plain = symbols.getZeroDigit() == '0' && df.isGroupingUsed() && df.getGroupingSize() == 3
+						&& df.getMinimumIntegerDigits() == 1 && df.getMinimumFractionDigits() == 0
+						&& df.getMaximumFractionDigits() == 3 && df.getPositivePrefix().isEmpty()
+						&& df.getPositiveSuffix().isEmpty() && df.getNegativeSuffix().isEmpty()
+						&& !negativePrefix.isEmpty() && !df.isParseBigDecimal()
+						&& (decimalPoint < '0' || decimalPoint > '9') && decimalPoint != '-';
+				plainParse = plain && negativePrefix.equals("-");
+			} else {
+				negativePrefix = "-";
+				plain = false;
+				plainParse = false;
+			}
+		}
+
+		NumberFormat getFormat() {
+			return (NumberFormat) format.clone();
+		}
+
+		NumberFormat getIntegerFormat() {
+			return (NumberFormat) integerFormat.clone();
+		}
+	}
+
+	private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		BoundedMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	/*
+	 * Process-wide caches: creating a format is expensive, while cloning a
+	 * prototype is cheap. Unlike a thread-local cache, these do not keep
+	 * values in the (pooled) threads of the servlet container.
+	 */
+	private static final Map<Locale, LocaleFormat> locales = new BoundedMap<Locale, LocaleFormat>(16);
+	private static final Map<String, DecimalFormat> patterns = new BoundedMap<String, DecimalFormat>(64);
+
+	private static final double MAX_PLAIN_DECIMAL = 1E15;
+
+	private static LocaleFormat getLocaleFormat(Locale locale) {
+		synchronized (locales) {
+			LocaleFormat result = locales.get(locale);
+			if (result != null)
+				return result;
+		}
+
+		LocaleFormat result = new LocaleFormat(locale);
+		synchronized (locales) {
+			locales.put(locale, result);
+		}
+		return result;
+	}
+
 	public static String getDecimalPoint(Locale locale) {
-		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
-		return String.valueOf(symbols.getDecimalSeparator());
+		return String.valueOf(getLocaleFormat(locale).decimalPoint);
 	}
-	
+
 	public static String getGroupSeparator(Locale locale) {
-		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
-		return String.valueOf(symbols.getGroupingSeparator());
+		return String.valueOf(getLocaleFormat(locale).groupSeparator);
 	}
-	
+
 	public static String getDateFormat(Locale locale) {
 		return "yyyy-MM-dd";
 	}
-	
+
 	public static double toDouble(Locale locale, String value) {
 		value = value.trim();
+		LocaleFormat f = getLocaleFormat(locale);
+		if (f.plainParse && isPlainNumber(value, f.decimalPoint, 15)) {
+			if (f.decimalPoint != '.')
+				value = value.replace(f.decimalPoint, '.');
+			return Double.parseDouble(value);
+		}
+
 		ParsePosition pos = new ParsePosition(0);
-		Number result = NumberFormat.getInstance(locale).parse(value, pos);
+		Number result = f.getFormat().parse(value, pos);
 		if (pos.getIndex() != value.length())
 			throw new NumberFormatException("Could not parse: " + value);
 		return result.doubleValue();
@@ -34,10 +134,12 @@ public class LocaleUtils {
 
 	public static int toInt(Locale locale, String value) {
 		value = value.trim();
+		LocaleFormat f = getLocaleFormat(locale);
+		if (f.plainParse && isPlainNumber(value, (char) 0, 9))
+			return Integer.parseInt(value);
+
 		ParsePosition pos = new ParsePosition(0);
-		NumberFormat numberFormatter = NumberFormat.getInstance(locale);
-		numberFormatter.setParseIntegerOnly(true);
-		Number result = numberFormatter.parse(value, pos);
+		Number result = f.getIntegerFormat().parse(value, pos);
 		if (pos.getIndex() != value.length())
 			throw new NumberFormatException("Could not parse: " + value);
 		return result.intValue();
@@ -52,19 +154,145 @@ public class LocaleUtils {
 	}
 
 	public static String toFixedString(Locale locale, double value, int precision) {
-		NumberFormat nf = NumberFormat.getInstance(locale);
-		int current = nf.getMaximumFractionDigits();
+		NumberFormat nf = getLocaleFormat(locale).getFormat();
 		nf.setMaximumFractionDigits(precision);
-		String ans = nf.format(value);
-		nf.setMaximumFractionDigits(current);
-		return ans;
-	}	
+		return nf.format(value);
+	}
 
 	public static String toString(Locale locale, int value) {
-		return NumberFormat.getInstance(locale).format(value);
+		LocaleFormat f = getLocaleFormat(locale);
+		if (f.plain)
+			return formatPlain(f, value, 0);
+		return f.getFormat().format(value);
 	}
 
 	public static String toString(Locale locale, double value) {
-		return NumberFormat.getInstance(locale).format(value);
-	}	
+		LocaleFormat f = getLocaleFormat(locale);
+		if (f.plain && isPlainDecimal(value))
+			return formatPlain(f, (long) Math.rint(value * 1000), 3);
+		return f.getFormat().format(value);
+	}
+
+	/**
+	 * Formats a number using the number format of a locale.
+	 * <p>
+	 * This is equivalent to <code>NumberFormat.getInstance(locale).format(value)</code>.
+	 */
+	public static String toString(Locale locale, Number value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			LocaleFormat f = getLocaleFormat(locale);
+			if (f.plain)
+				return formatPlain(f, value.longValue(), 0);
+			return f.getFormat().format(value.longValue());
+		} else if (value instanceof Double || value instanceof Float)
+			return toString(locale, value.doubleValue());
+		else
+			return getLocaleFormat(locale).getFormat().format(value);
+	}
+
+	/**
+	 * Formats a number using a {@link DecimalFormat} pattern.
+	 * <p>
+	 * This is equivalent to <code>new DecimalFormat(pattern).format(value)</code>, but reuses the format for
+	 * a pattern.
+	 */
+	public static String toString(String pattern, Number value) {
+		String key = Locale.getDefault(Locale.Category.FORMAT) + "|" + pattern;
+
+		DecimalFormat format;
+		synchronized (patterns) {
+			format = patterns.get(key);
+		}
+
+		if (format == null) {
+			format = new DecimalFormat(pattern);
+			synchronized (patterns) {
+				patterns.put(key, format);
+			}
+		}
+
+		return ((DecimalFormat) format.clone()).format(value);
+	}
+
+	/*
+	 * Returns whether a double is formatted exactly by formatPlain() with 3
+	 * fraction digits: value * 1000 is then within one ulp of an integer,
+	 * and thus far from a rounding tie.
+	 */
+	private static boolean isPlainDecimal(double value) {
+		double scaled = value * 1000;
+		return Math.abs(scaled) < MAX_PLAIN_DECIMAL && scaled == Math.rint(scaled)
+				&& Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0);
+	}
+
+	/*
+	 * Formats a value with the given number of (implicit) fraction digits,
+	 * omitting trailing zeros in the fraction.
+	 */
+	private static String formatPlain(LocaleFormat f, long value, int fractionDigits) {
+		String digits = Long.toString(value);
+		int begin = value < 0 ? 1 : 0;
+		int length = digits.length() - begin;
+		int integerDigits = length - fractionDigits;
+
+		int fractionEnd = fractionDigits;
+		while (fractionEnd > 0 && digit(digits, begin, length, integerDigits + fractionEnd - 1) == '0')
+			--fractionEnd;
+
+		StringBuilder result = new StringBuilder(length + length / 3 + 8);
+		if (value < 0)
+			result.append(f.negativePrefix);
+
+		if (integerDigits <= 0)
+			result.append('0');
+		else {
+			for (int i = 0; i < integerDigits; ++i) {
+				if (i > 0 && (integerDigits - i) % 3 == 0)
+					result.append(f.groupSeparator);
+				result.append(digits.charAt(begin + i));
+			}
+		}
+
+		if (fractionEnd > 0) {
+			result.append(f.decimalPoint);
+			for (int i = 0; i < fractionEnd; ++i)
+				result.append(digit(digits, begin, length, integerDigits + i));
+		}
+
+		return result.toString();
+	}
+
+	/*
+	 * Returns the i'th digit of a number, where i may be negative for the
+	 * leading zeros of a fraction.
+	 */
+	private static char digit(String digits, int begin, int length, int i) {
+		return i < 0 ? '0' : digits.charAt(begin + i);
+	}
+
+	/*
+	 * Returns whether a string is an optional '-' followed by at most
+	 * maxDigits ASCII digits and an optional decimal point between digits.
+	 */
+	private static boolean isPlainNumber(String value, char decimalPoint, int maxDigits) {
+		int n = value.length();
+		int i = n > 0 && value.charAt(0) == '-' ? 1 : 0;
+		int digits = 0;
+		boolean point = false;
+		boolean digit = false;
+
+		for (; i < n; ++i) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				++digits;
+				digit = true;
+			} else if (c == decimalPoint && decimalPoint != 0 && !point && digit) {
+				point = true;
+				digit = false;
+			} else
+				return false;
+		}
+
+		return digit && digits <= maxDigits;
+	}
 }
@@ -5,6 +5,10 @@
  */
 package eu.webtoolkit.jwt.utils;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Random;
 
 public class MathUtils {
@@ -13,14 +17,151 @@ public class MathUtils {
 	}
 
 	static private Random random = new Random();
-	private static double e[] = new double[] { 1.0, 10.0, 100.0, 1000.0, 10000.0, 100000.0, 1000000.0 };
 
+	private static final long[] POW10 = new long[19];
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; ++i)
+			POW10[i] = POW10[i - 1] * 10;
+	}
+
+	/*
+	 * Above this magnitude, a scaled value can no longer be represented exactly
+	 * as a long (2^53).
+	 */
+	private static final double MAX_EXACT = 9007199254740992.0;
+
+	/**
+	 * Formats a number for use in CSS, with at most <i>n</i> decimals.
+	 * <p>
+	 * The number is never formatted using an exponent.
+	 */
 	public static String roundCss(double v, int n) {
-		return String.valueOf(Math.round(v * e[n]) / e[n]);
+		return roundCss(new StringBuilder(16), v, n).toString();
 	}
 
+	/**
+	 * Appends a number for use in CSS, with at most <i>n</i> decimals.
+	 *
+	 * @return the <i>out</i> builder
+	 * @see #roundCss(double, int)
+	 */
+	public static StringBuilder roundCss(StringBuilder out, double v, int n) {
+		if (Double.isNaN(v) || Double.isInfinite(v))
+			return out.append('0');
+		else if (!appendFixed(out, v, n))
+			return out.append(new BigDecimal(v).setScale(n, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString());
+		else
+			return out;
+	}
+
+	/**
+	 * Formats a number for use in JavaScript (or SVG), with at most <i>n</i>
+	 * decimals.
+	 * <p>
+	 * Trailing zeros are omitted.
+	 */
 	public static String roundJs(double v, int n) {
-		return String.valueOf(v);
+		return roundJs(new StringBuilder(16), v, n).toString();
+	}
+
+	/**
+	 * Appends a number for use in JavaScript (or SVG), with at most <i>n</i>
+	 * decimals.
+	 * <p>
+	 * Unlike {@link #roundJs(double, int)}, this does not create any temporary
+	 * objects (except for very large numbers), and should thus be preferred
+	 * when serializing many numbers (e.g. path coordinates).
+	 *
+	 * @return the <i>out</i> builder
+	 */
+	public static StringBuilder roundJs(StringBuilder out, double v, int n) {
+		appendJs(out, v, n);
+		return out;
+	}
+
+	/**
+	 * Appends a number for use in JavaScript (or SVG), with at most <i>n</i>
+	 * decimals.
+	 *
+	 * @return the <i>out</i> writer
+	 * @see #roundJs(StringBuilder, double, int)
+	 */
+	public static StringWriter roundJs(StringWriter out, double v, int n) {
+		appendJs(out.getBuffer(), v, n);
+		return out;
+	}
+
+	private static void appendJs(Appendable out, double v, int n) {
+		try {
+			if (Double.isNaN(v))
+				out.append("NaN");
+			else if (Double.isInfinite(v))
+				out.append(v > 0 ? "Infinity" : "-Infinity");
+			else if (!appendFixed(out, v, n))
+				out.append(String.valueOf(v));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static boolean appendFixed(StringBuilder out, double v, int n) {
+		try {
+			return appendFixed((Appendable) out, v, n);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/*
+	 * Appends v with at most n decimals (trailing zeros removed), if this can be
+	 * done exactly using long arithmetic.
+	 */
+	private static boolean appendFixed(Appendable out, double v, int n) throws IOException {
+		if (n < 0 || n >= POW10.length)
+			return false;
+
+		double scaled = Math.abs(v) * POW10[n];
+		if (!(scaled < MAX_EXACT))
+			return false;
+
+		long l = Math.round(scaled);
+		if (l == 0) {
+			out.append('0');
+			return true;
+		}
+
+		if (v < 0)
+			out.append('-');
+
+		long p = POW10[n];
+		appendDigits(out, l / p, 1);
+
+		long fraction = l % p;
+		if (fraction != 0) {
+			int digits = n;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				--digits;
+			}
+
+			out.append('.');
+			appendDigits(out, fraction, digits);
+		}
+
+		return true;
+	}
+
+	/*
+	 * Appends the decimal digits of a non-negative value, padded with leading
+	 * zeros to at least minDigits digits.
+	 */
+	private static void appendDigits(Appendable out, long value, int minDigits) throws IOException {
+		int digits = 1;
+		while (digits < POW10.length && POW10[digits] <= value)
+			++digits;
+		for (int i = Math.max(digits, minDigits) - 1; i >= 0; --i)
+			out.append((char) ('0' + (value / POW10[i]) % 10));
 	}
 
 	public static String randomId() {
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2026 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import eu.webtoolkit.jwt.WResource;
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+/**
+ * Utility methods to serve content with support for conditional and range
+ * requests.
+ * <p>
+ * These methods implement HTTP validators (<code>ETag</code> and
+ * <code>Last-Modified</code>, with a <code>304 Not Modified</code> response
+ * to a matching <code>If-None-Match</code> or <code>If-Modified-Since</code>
+ * request header), and byte range requests (<code>Range</code> and
+ * <code>If-Range</code>, with single and multipart range responses). They are
+ * used by {@link eu.webtoolkit.jwt.WFileResource} and
+ * {@link eu.webtoolkit.jwt.WMemoryResource}, and may be used by custom
+ * {@link WResource} implementations from within
+ * {@link WResource#handleRequest(WebRequest, WebResponse) handleRequest()}
+ * for any content of which the length is known up front.
+ */
+public class ResourceUtils {
+	/**
+	 * Writes a part of the content.
+	 */
+	public interface ContentWriter {
+		/**
+		 * Writes <code>length</code> bytes, starting at <code>offset</code>.
+		 */
+		public void write(OutputStream out, long offset, long length) throws IOException;
+	}
+
+	/**
+	 * A satisfiable byte range, with inclusive bounds.
+	 */
+	public static class ByteRange {
+		private final long first;
+		private final long last;
+
+		public ByteRange(long first, long last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		/**
+		 * Returns the offset of the first byte.
+		 */
+		public long getFirstByte() {
+			return first;
+		}
+
+		/**
+		 * Returns the offset of the last byte.
+		 */
+		public long getLastByte() {
+			return last;
+		}
+
+		/**
+		 * Returns the number of bytes in the range.
+		 */
+		public long getLength() {
+			return last - first + 1;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ByteRange))
+				return false;
+			ByteRange other = (ByteRange) o;
+			return first == other.first && last == other.last;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(first) * 31 + Long.hashCode(last);
+		}
+
+		@Override
+		public String toString() {
+			return first + "-" + last;
+		}
+	}
+
+	/**
+	 * The maximum number of ranges that are served in a multipart response.
+	 * A request for more (non-overlapping) ranges is served with the entire
+	 * content.
+	 */
+	public static final int MAX_RANGES = 16;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Creates an entity tag from the length and modification time of a file.
+	 */
+	public static String createETag(long length, long lastModified) {
+		return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+	}
+
+	/**
+	 * Creates an entity tag from the contents of a buffer.
+	 */
+	public static String createETag(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return "\"" + Integer.toHexString(data.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+	}
+
+	/**
+	 * Serves a file.
+	 * <p>
+	 * The entity tag and last modification time are derived from the file
+	 * attributes. The file contents are transferred using
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. If the
+	 * file cannot be read, a 404 status is returned.
+	 */
+	public static void serveFile(WebRequest request, WebResponse response, String contentType, File file)
+			throws IOException {
+		final FileInputStream in;
+		try {
+			in = new FileInputStream(file);
+		} catch (IOException e) {
+			response.setStatus(404);
+			return;
+		}
+
+		try {
+			final FileChannel channel = in.getChannel();
+			long length = channel.size();
+			long lastModified = file.lastModified();
+			serve(request, response, contentType, length, createETag(length, lastModified), lastModified,
+					(OutputStream out, long offset, long count) -> transfer(channel, out, offset, count));
+		} finally {
+			StreamUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Serves data from memory.
+	 *
+	 * @param etag the entity tag, or <code>null</code>
+	 * @param lastModified the last modification time (in milliseconds since the
+	 *        epoch), or -1 if unknown
+	 */
+	public static void serveData(WebRequest request, WebResponse response, String contentType, final byte[] data,
+			String etag, long lastModified) throws IOException {
+		serve(request, response, contentType, data.length, etag, lastModified,
+				(OutputStream out, long offset, long count) -> out.write(data, (int) offset, (int) count));
+	}
+
+	/**
+	 * Serves content.
+	 * <p>
+	 * Sets the validator headers, and responds with <code>304 Not
+	 * Modified</code> if the client already has this version of the content.
+	 * Otherwise, the requested ranges (or the entire content) are written using
+	 * the <i>writer</i>. For a <code>HEAD</code> request, only the headers are
+	 * sent.
+	 *
+	 * @param etag the entity tag, or <code>null</code>
+	 * @param lastModified the last modification time (in milliseconds since the
+	 *        epoch), or -1 if unknown
+	 */
+	public static void serve(WebRequest request, WebResponse response, String contentType, long length,
+			String etag, long lastModified, ContentWriter writer) throws IOException {
+		String method = request.getMethod();
+		boolean head = "HEAD".equals(method);
+		boolean get = head || method == null || "GET".equals(method);
+
+		response.setHeader("Accept-Ranges", "bytes");
+		if (etag != null)
+			response.setHeader("ETag", etag);
+		if (lastModified >= 0)
+			response.setDateHeader("Last-Modified", lastModified);
+
+		if (get && isNotModified(request.getHeader("If-None-Match"), request.getHeader("If-Modified-Since"), etag,
+				lastModified)) {
+			response.setStatus(304);
+			return;
+		}
+
+		List<ByteRange> ranges = null;
+		if (get && isRangeApplicable(request.getHeader("If-Range"), etag, lastModified))
+			ranges = parseRanges(request.getHeader("Range"), length);
+
+		if (ranges == null) {
+			response.setContentType(contentType);
+			response.setContentLengthLong(length);
+			if (!head && length > 0)
+				writer.write(response.getOutputStream(), 0, length);
+		} else if (ranges.isEmpty()) {
+			response.setStatus(416);
+			response.setHeader("Content-Range", "bytes */" + length);
+		} else if (ranges.size() == 1) {
+			ByteRange range = ranges.get(0);
+			response.setStatus(206);
+			response.setContentType(contentType);
+			response.setHeader("Content-Range", contentRange(range, length));
+			response.setContentLengthLong(range.getLength());
+			if (!head)
+				writer.write(response.getOutputStream(), range.getFirstByte(), range.getLength());
+		} else {
+			String boundary = createBoundary();
+			response.setStatus(206);
+			response.setContentType("multipart/byteranges; boundary=" + boundary);
+			response.setContentLengthLong(getMultipartLength(boundary, contentType, length, ranges));
+			if (!head)
+				writeMultipart(response.getOutputStream(), boundary, contentType, length, ranges, writer);
+		}
+	}
+
+	/**
+	 * Parses a <code>Range</code> request header.
+	 * <p>
+	 * Returns <code>null</code> if the header is absent or invalid, or if it
+	 * should be ignored (e.g. because it specifies too many ranges), in which
+	 * case the entire content should be served. Returns an empty list if none
+	 * of the ranges is satisfiable. Otherwise, returns the satisfiable ranges,
+	 * ordered and with overlapping or adjacent ranges coalesced.
+	 */
+	public static List<ByteRange> parseRanges(String header, long length) {
+		if (header == null)
+			return null;
+
+		header = header.trim();
+		if (!header.regionMatches(true, 0, "bytes=", 0, 6))
+			return null;
+
+		List<ByteRange> result = new ArrayList<ByteRange>();
+		for (String spec : header.substring(6).split(",")) {
+			spec = spec.trim();
+			if (spec.length() == 0)
+				continue;
+
+			int dash = spec.indexOf('-');
+			if (dash < 0)
+				return null;
+
+			long first, last;
+			try {
+				if (dash == 0) {
+					long suffix = parseOffset(spec.substring(1));
+					if (suffix == 0 || length == 0)
+						continue;
+					first = Math.max(0, length - suffix);
+					last = length - 1;
+				} else {
+					first = parseOffset(spec.substring(0, dash));
+					last = dash == spec.length() - 1 ? Long.MAX_VALUE : parseOffset(spec.substring(dash + 1));
+					if (last < first)
+						return null;
+					if (first >= length)
+						continue;
+					last = Math.min(last, length - 1);
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+
+			result.add(new ByteRange(first, last));
+		}
+
+		if (result.size() <= 1)
+			return result;
+
+		Collections.sort(result, (ByteRange a, ByteRange b) -> Long.compare(a.first, b.first));
+		List<ByteRange> merged = new ArrayList<ByteRange>();
+		ByteRange current = result.get(0);
+		for (int i = 1; i < result.size(); ++i) {
+			ByteRange r = result.get(i);
+			if (r.first <= current.last + 1)
+				current = new ByteRange(current.first, Math.max(current.last, r.last));
+			else {
+				merged.add(current);
+				current = r;
+			}
+		}
+		merged.add(current);
+
+		if (merged.size() > MAX_RANGES)
+			return null;
+
+		return merged;
+	}
+
+	/**
+	 * Returns whether a <code>304 Not Modified</code> response should be sent.
+	 * <p>
+	 * If the request has an <code>If-None-Match</code> header, it is compared
+	 * (using weak comparison) with the entity tag. Otherwise, the
+	 * <code>If-Modified-Since</code> header is compared with the last
+	 * modification time.
+	 */
+	public static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified) {
+		if (ifNoneMatch != null) {
+			if (etag == null)
+				return false;
+
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag(etag)))
+					return true;
+			}
+
+			return false;
+		}
+
+		if (ifModifiedSince != null && lastModified >= 0) {
+			long since = parseHttpDate(ifModifiedSince);
+			return since >= 0 && lastModified / 1000 <= since / 1000;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether a <code>Range</code> header should be honoured, given the
+	 * <code>If-Range</code> header.
+	 * <p>
+	 * An entity tag in the <code>If-Range</code> header is compared using strong
+	 * comparison, and a date must match the last modification time exactly.
+	 */
+	public static boolean isRangeApplicable(String ifRange, String etag, long lastModified) {
+		if (ifRange == null)
+			return true;
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+			return etag != null && !etag.startsWith("W/") && ifRange.equals(etag);
+
+		long date = parseHttpDate(ifRange);
+		return date >= 0 && lastModified >= 0 && date / 1000 == lastModified / 1000;
+	}
+
+	static long getMultipartLength(String boundary, String contentType, long length, List<ByteRange> ranges) {
+		long result = 0;
+		for (ByteRange range : ranges)
+			result += partHeader(boundary, contentType, range, length).length + range.getLength();
+		return result + partTrailer(boundary).length;
+	}
+
+	static void writeMultipart(OutputStream out, String boundary, String contentType, long length,
+			List<ByteRange> ranges, ContentWriter writer) throws IOException {
+		for (ByteRange range : ranges) {
+			out.write(partHeader(boundary, contentType, range, length));
+			writer.write(out, range.getFirstByte(), range.getLength());
+		}
+		out.write(partTrailer(boundary));
+	}
+
+	private static byte[] partHeader(String boundary, String contentType, ByteRange range, long length) {
+		StringBuilder s = new StringBuilder();
+		s.append("\r\n--").append(boundary).append("\r\n");
+		if (contentType != null && contentType.length() != 0)
+			s.append("Content-Type: ").append(contentType).append("\r\n");
+		s.append("Content-Range: ").append(contentRange(range, length)).append("\r\n\r\n");
+		return s.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] partTrailer(String boundary) {
+		return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static String contentRange(ByteRange range, long length) {
+		return "bytes " + range.getFirstByte() + "-" + range.getLastByte() + "/" + length;
+	}
+
+	private static String createBoundary() {
+		return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+	}
+
+	private static void transfer(FileChannel channel, OutputStream out, long offset, long count) throws IOException {
+		WritableByteChannel target = Channels.newChannel(out);
+		while (count > 0) {
+			long n = channel.transferTo(offset, count, target);
+			if (n <= 0)
+				throw new IOException("Unexpected end of file");
+			offset += n;
+			count -= n;
+		}
+	}
+
+	private static long parseOffset(String s) {
+		s = s.trim();
+		if (s.length() == 0 || s.charAt(0) == '+')
+			throw new NumberFormatException(s);
+		long result = Long.parseLong(s);
+		if (result < 0)
+			throw new NumberFormatException(s);
+		return result;
+	}
+
+	private static String opaqueTag(String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+
+	private static long parseHttpDate(String date) {
+		try {
+			return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME.withLocale(Locale.ENGLISH))
+					.toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+}
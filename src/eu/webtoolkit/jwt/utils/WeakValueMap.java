@@ -135,7 +135,8 @@ public class WeakValueMap<K, V> implements Map<K, V> {
 			@SuppressWarnings("unchecked")
 			KeyedWeakReference<K, V> ref = (KeyedWeakReference<K, V>) referenceQueue.poll();
 			if (ref != null) {
-				storage.remove(ref.getKey());
+				if (storage.get(ref.getKey()) == ref)
+					storage.remove(ref.getKey());
 			} else
 				break;
 		}
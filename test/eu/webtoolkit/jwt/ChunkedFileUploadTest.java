@@ -0,0 +1,108 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ChunkedFileUploadTest {
+	@Test
+	public void testOutOfOrder() throws IOException {
+		byte[] data = new byte[2500];
+		for (int i = 0; i < data.length; ++i)
+			data[i] = (byte) i;
+
+		Path f = Files.createTempFile("jwt", "jwt");
+		try {
+			ChunkedFileUpload upload = new ChunkedFileUpload(f, data.length, 1000);
+			assertEquals(3, upload.getChunkCount());
+			assertEquals(data.length, Files.size(f));
+
+			assertFalse(upload.writeChunk(2, chunk(data, 2, 1000), 64));
+			assertFalse(upload.writeChunk(0, chunk(data, 0, 1000), 64));
+			assertEquals("0,2", upload.getReceivedChunks());
+			assertEquals(1500, upload.getReceivedBytes());
+
+			assertTrue(upload.writeChunk(1, chunk(data, 1, 1000), 64));
+			assertEquals(data.length, upload.getReceivedBytes());
+			assertArrayEquals(data, Files.readAllBytes(f));
+		} finally {
+			Files.deleteIfExists(f);
+		}
+	}
+
+	@Test
+	public void testInvalidChunk() throws IOException {
+		Path f = Files.createTempFile("jwt", "jwt");
+		try {
+			ChunkedFileUpload upload = new ChunkedFileUpload(f, 2000, 1000);
+
+			try {
+				upload.writeChunk(0, new ByteArrayInputStream(new byte[999]), 64);
+				fail("short chunk accepted");
+			} catch (IOException e) {
+			}
+			try {
+				upload.writeChunk(1, new ByteArrayInputStream(new byte[1001]), 64);
+				fail("long chunk accepted");
+			} catch (IOException e) {
+			}
+			try {
+				upload.writeChunk(2, new ByteArrayInputStream(new byte[0]), 64);
+				fail("chunk out of range accepted");
+			} catch (IOException e) {
+			}
+			assertEquals("", upload.getReceivedChunks());
+
+			upload.discard();
+			assertFalse(Files.exists(f));
+		} finally {
+			Files.deleteIfExists(f);
+		}
+	}
+
+	@Test
+	public void testRetriedChunk() throws IOException {
+		byte[] data = new byte[1500];
+		Path f = Files.createTempFile("jwt", "jwt");
+		try {
+			ChunkedFileUpload upload = new ChunkedFileUpload(f, data.length, 1000);
+
+			assertFalse(upload.writeChunk(0, chunk(data, 0, 1000), 64));
+			assertFalse(upload.writeChunk(0, chunk(data, 0, 1000), 64));
+			assertTrue(upload.writeChunk(1, chunk(data, 1, 1000), 64));
+			assertFalse(upload.writeChunk(1, chunk(data, 1, 1000), 64));
+			assertEquals("0,1", upload.getReceivedChunks());
+		} finally {
+			Files.deleteIfExists(f);
+		}
+	}
+
+	@Test
+	public void testSessionEnd() throws IOException {
+		WApplication app = WApplicationTest.createApplication();
+		WFileDropWidget.File file = new WFileDropWidget.File(1, "f", "f", "", 2000, 0);
+
+		ChunkedFileUpload upload = file.getChunkedUpload(app, 1000);
+		assertTrue(Files.exists(upload.getFile()));
+		assertFalse(upload.writeChunk(0, new ByteArrayInputStream(new byte[1000]), 64));
+
+		app.discardChunkedUploads();
+		assertFalse(Files.exists(upload.getFile()));
+		try {
+			upload.writeChunk(1, new ByteArrayInputStream(new byte[1000]), 64);
+			fail("chunk of discarded upload accepted");
+		} catch (IOException e) {
+		}
+	}
+
+	private static ByteArrayInputStream chunk(byte[] data, int chunk, int chunkSize) {
+		int begin = chunk * chunkSize;
+		return new ByteArrayInputStream(Arrays.copyOfRange(data, begin, Math.min(data.length, begin + chunkSize)));
+	}
+}
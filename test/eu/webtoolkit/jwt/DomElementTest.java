@@ -0,0 +1,27 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DomElementTest {
+	@Test
+	public void testProperties() {
+		DomElement e = DomElement.createNew(DomElementType.DIV);
+		e.removeProperty(Property.Class);
+		e.clearProperties();
+		assertEquals("", e.getProperty(Property.Class));
+
+		e.getProperties().put(Property.Class, "a");
+		assertEquals("a", e.getProperty(Property.Class));
+
+		e.setProperty(Property.StyleWidth, "10px");
+		e.removeProperty(Property.Class);
+		assertEquals(1, e.getProperties().size());
+
+		e.clearProperties();
+		assertTrue(e.getProperties().isEmpty());
+		e.setProperty(Property.Class, "b");
+		assertEquals("b", e.getProperty(Property.Class));
+	}
+}
@@ -1,6 +1,8 @@
 package eu.webtoolkit.jwt;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -20,4 +22,67 @@ public class EscapeTest {
 		
 		assertEquals("\"", WWebWidget.unescapeText(toUnescape));
 	}
+
+	@Test
+	public void testRuleSets() {
+		final String s = "a&b\"c'd<e>f\\g\nh\ri\tj\u00e9";
+
+		assertEquals("a&amp;b&#34;c'd&lt;e>f\\g\nh\ri\tj\u00e9", escape(s, EscapeOStream.RuleSet.HtmlAttribute));
+		assertEquals("a&b\"c\\'d<e>f\\\\g\\nh\\ri\\tj\u00e9", escape(s, EscapeOStream.RuleSet.JsStringLiteralSQuote));
+		assertEquals("a&b\\\"c'd<e>f\\\\g\\nh\\ri\\tj\u00e9", escape(s, EscapeOStream.RuleSet.JsStringLiteralDQuote));
+		assertEquals("a&amp;b\"c'd&lt;e&gt;f\\g\nh\ri\tj\u00e9", escape(s, EscapeOStream.RuleSet.Plain));
+		assertEquals("a&amp;b\"c'd&lt;e&gt;f\\g<br />h\ri\tj\u00e9", escape(s, EscapeOStream.RuleSet.PlainTextNewLines));
+		assertEquals(s, escape(s));
+	}
+
+	@Test
+	public void testMixedRuleSets() {
+		assertEquals("\\&#34;&amp;\\n", escape("\"&\n", EscapeOStream.RuleSet.HtmlAttribute,
+				EscapeOStream.RuleSet.JsStringLiteralDQuote));
+		assertEquals("\\'&amp;amp;&lt;br /&gt;", escape("'&\n", EscapeOStream.RuleSet.JsStringLiteralSQuote,
+				EscapeOStream.RuleSet.Plain, EscapeOStream.RuleSet.PlainTextNewLines));
+	}
+
+	@Test
+	public void testPushPop() {
+		EscapeOStream out = new EscapeOStream();
+		out.pushEscape(EscapeOStream.RuleSet.HtmlAttribute);
+		out.pushEscape(EscapeOStream.RuleSet.JsStringLiteralSQuote);
+		out.pushEscape(EscapeOStream.RuleSet.PlainTextNewLines);
+		out.popEscape();
+
+		EscapeOStream nested = out.push();
+		nested.append('\n').append('"').append('x');
+		out.popEscape();
+		out.append("\n>");
+		out.popEscape();
+		out.append("<");
+
+		assertEquals("\\n&#34;x\n><", out.toString());
+		assertTrue(new EscapeOStream().isEmpty());
+		assertFalse(out.isEmpty());
+	}
+
+	@Test
+	public void testAppendStream() {
+		EscapeOStream html = new EscapeOStream();
+		html.append("<b a=\"1\">'x'</b>");
+
+		EscapeOStream out = new EscapeOStream();
+		out.pushEscape(EscapeOStream.RuleSet.JsStringLiteralSQuote);
+		out.append(html);
+		assertEquals("<b a=\"1\">\\'x\\'</b>", out.toString());
+
+		out.popEscape();
+		out.append(out);
+		assertEquals("<b a=\"1\">\\'x\\'</b><b a=\"1\">\\'x\\'</b>", out.toString());
+	}
+
+	private static String escape(String s, EscapeOStream.RuleSet... rules) {
+		EscapeOStream out = new EscapeOStream();
+		for (EscapeOStream.RuleSet r : rules)
+			out.pushEscape(r);
+		out.append(s);
+		return out.toString();
+	}
 }
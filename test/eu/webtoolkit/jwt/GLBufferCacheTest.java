@@ -0,0 +1,146 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.chart.Axis;
+import eu.webtoolkit.jwt.chart.ChartType;
+import eu.webtoolkit.jwt.chart.Series3DType;
+import eu.webtoolkit.jwt.chart.WCartesian3DChart;
+import eu.webtoolkit.jwt.chart.WGridData;
+
+public class GLBufferCacheTest {
+	@Test
+	public void testSharedResources() {
+		GLBufferCache cache = new GLBufferCache();
+
+		WMemoryResource r = cache.getResource(new byte[] { 1, 2, 3, 4 });
+		assertSame(r, cache.getResource(new byte[] { 1, 2, 3, 4 }));
+		assertNotSame(r, cache.getResource(new byte[] { 1, 2, 3, 5 }));
+
+		cache.clearResources();
+		assertNotSame(r, cache.getResource(new byte[] { 1, 2, 3, 4 }));
+	}
+
+	@Test
+	public void testBufferContents() {
+		GLBufferCache cache = new GLBufferCache();
+		WGLWidget.Buffer buffer = new WGLWidget.Buffer(3);
+
+		assertNull(cache.getContents(buffer));
+		byte[] data = new byte[] { 1, 2 };
+		cache.setContents(buffer, data);
+		assertSame(data, cache.getContents(buffer));
+		assertSame(data, cache.getContents(new WGLWidget.Buffer(3)));
+
+		cache.removeContents(buffer);
+		assertNull(cache.getContents(buffer));
+	}
+
+	@Test
+	public void testRoles() {
+		GLBufferCache cache = new GLBufferCache();
+		byte[] data = new byte[] { 1, 2 };
+
+		cache.beginPass();
+		WGLWidget.Buffer a = new WGLWidget.Buffer(0), b = new WGLWidget.Buffer(1);
+		cache.addBuffer(a);
+		cache.addBuffer(b);
+		cache.setContents(b, data);
+		WMemoryResource r = cache.getResource(data);
+		cache.removeBuffer(a);
+		cache.removeBuffer(b);
+
+		cache.beginPass();
+		WGLWidget.Buffer c = new WGLWidget.Buffer(2), d = new WGLWidget.Buffer(3);
+		cache.addBuffer(c);
+		cache.addBuffer(d);
+		assertNull(cache.getContents(d));
+		assertNull(cache.getRoleContents(c));
+		assertSame(data, cache.getRoleContents(d));
+
+		cache.beginPass();
+		assertSame(r, cache.getResource(data));
+		cache.beginPass();
+		cache.beginPass();
+		cache.beginPass();
+		assertNotSame(r, cache.getResource(data));
+	}
+
+	@Test
+	public void testChartClipping() {
+		WApplication app = WApplicationTest.createApplication();
+		app.getEnvironment().webGLsupported_ = true;
+
+		WStandardItemModel model = new WStandardItemModel(6, 6);
+		for (int row = 0; row < 6; ++row)
+			for (int column = 0; column < 6; ++column)
+				model.setData(row, column, (double) (row * column));
+
+		WCartesian3DChart chart = new WCartesian3DChart(ChartType.Scatter);
+		chart.resize(400, 400);
+		WGridData data = new WGridData(model);
+		data.setType(Series3DType.Surface);
+		chart.addDataSeries(data);
+		app.getRoot().addWidget(chart);
+
+		WGLWidget widget = chart;
+		widget.render(EnumSet.of(RenderFlag.Full));
+		List<String> before = getBufferUrls(app);
+		assertFalse(before.isEmpty());
+
+		data.setClippingMin(Axis.X, 2.0f);
+		widget.render(EnumSet.noneOf(RenderFlag.class));
+		List<String> after = getBufferUrls(app);
+		assertFalse(after.isEmpty());
+		assertTrue(before.containsAll(after));
+	}
+
+	private static List<String> getBufferUrls(WApplication app) {
+		String js = app.afterLoadJavaScript_.toString();
+		app.afterLoadJavaScript_.setLength(0);
+
+		List<String> result = new ArrayList<String>();
+		Matcher m = Pattern.compile("ArrayBufferPreloader\\(\\[([^\\]]*)\\]").matcher(js);
+		while (m.find())
+			for (String url : m.group(1).split(","))
+				result.add(url);
+		return result;
+	}
+
+	@Test
+	public void testChangedRange() {
+		byte[] a = new byte[16];
+		byte[] b = a.clone();
+
+		assertNull(GLBufferCache.getChangedRange(a, b, 4));
+
+		b[5] = 1;
+		assertArrayEquals(new int[] { 4, 8 }, GLBufferCache.getChangedRange(a, b, 4));
+
+		b[15] = 1;
+		assertArrayEquals(new int[] { 4, 16 }, GLBufferCache.getChangedRange(a, b, 4));
+		assertArrayEquals(new int[] { 5, 16 }, GLBufferCache.getChangedRange(a, b, 1));
+	}
+
+	@Test
+	public void testIntEncoding() {
+		IntBuffer values = IntBuffer.wrap(new int[] { 1, 65535 });
+
+		byte[] shorts = GLBufferCache.toByteArray(values, WGLWidget.GLenum.UNSIGNED_SHORT);
+		assertEquals(4, shorts.length);
+		assertEquals(1, WebGLUtils.newByteBuffer(4).put(shorts).getShort(0));
+		assertEquals(65535, WebGLUtils.newByteBuffer(4).put(shorts).getShort(2) & 0xFFFF);
+
+		assertEquals(8, GLBufferCache.toByteArray(values, WGLWidget.GLenum.UNSIGNED_INT).length);
+		assertEquals(2, GLBufferCache.toByteArray(values, WGLWidget.GLenum.UNSIGNED_BYTE).length);
+	}
+}
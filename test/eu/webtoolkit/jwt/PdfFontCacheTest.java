@@ -0,0 +1,108 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.pdfjet.Font;
+import com.pdfjet.PDF;
+
+public class PdfFontCacheTest {
+	@Test
+	public void testFontProgram() throws Exception {
+		File file = File.createTempFile("font", ".ttf");
+		try {
+			Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+			byte[] data = PdfFontCache.getFontProgram(file.getPath());
+			assertArrayEquals(new byte[] { 1, 2, 3 }, data);
+			assertSame(data, PdfFontCache.getFontProgram(file.getPath()));
+
+			Files.write(file.toPath(), new byte[] { 4, 5, 6, 7 });
+			assertTrue(file.setLastModified(file.lastModified() + 2000));
+			assertArrayEquals(new byte[] { 4, 5, 6, 7 }, PdfFontCache.getFontProgram(file.getPath()));
+		} finally {
+			PdfFontCache.clearFontPrograms();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDocumentFonts() throws Exception {
+		final PDF pdf = new PDF(new ByteArrayOutputStream());
+		final int[] created = new int[1];
+
+		PdfFontCache.FontFactory factory = () -> {
+			++created[0];
+			return new Font(pdf, "Helvetica");
+		};
+
+		Font f = PdfFontCache.getFont(pdf, "Helvetica", 12, factory);
+		assertEquals(12.0, f.getSize(), 0.0);
+		assertSame(f, PdfFontCache.getFont(pdf, "Helvetica", 12, factory));
+		assertEquals(1, created[0]);
+
+		Font g = PdfFontCache.getFont(pdf, "Helvetica", 14, factory);
+		assertNotSame(f, g);
+		assertEquals(14.0, g.getSize(), 0.0);
+		assertEquals(2, created[0]);
+
+		final PDF other = new PDF(new ByteArrayOutputStream());
+		assertNotSame(f, PdfFontCache.getFont(other, "Helvetica", 12, () -> new Font(other, "Helvetica")));
+	}
+
+	@Test(timeout = 10000)
+	public void testConcurrentFonts() throws Exception {
+		final PDF pdf = new PDF(new ByteArrayOutputStream());
+		final CountDownLatch creating = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicReference<Font> slow = new AtomicReference<Font>();
+
+		Thread t = new Thread(() -> {
+			try {
+				slow.set(PdfFontCache.getFont(pdf, "Helvetica", 10, () -> {
+					creating.countDown();
+					release.await();
+					return new Font(pdf, "Helvetica");
+				}));
+			} catch (Exception e) {
+			}
+		});
+		t.start();
+		assertTrue(creating.await(5, TimeUnit.SECONDS));
+
+		Font f = PdfFontCache.getFont(pdf, "Courier", 10, () -> new Font(pdf, "Courier"));
+		assertNotNull(f);
+
+		release.countDown();
+		t.join();
+		assertSame(slow.get(), PdfFontCache.getFont(pdf, "Helvetica", 10, () -> {
+			throw new IllegalStateException();
+		}));
+	}
+
+	@Test
+	public void testFailedFont() throws Exception {
+		final PDF pdf = new PDF(new ByteArrayOutputStream());
+
+		try {
+			PdfFontCache.getFont(pdf, "Helvetica", 12, () -> {
+				throw new IOException("no font");
+			});
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertEquals("no font", e.getMessage());
+		}
+
+		Font f = PdfFontCache.getFont(pdf, "Helvetica", 12, () -> new Font(pdf, "Helvetica"));
+		assertNotNull(f);
+	}
+}
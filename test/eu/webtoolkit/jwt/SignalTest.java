@@ -0,0 +1,98 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SignalTest {
+	@Test
+	public void testOrder() {
+		final List<String> calls = new ArrayList<String>();
+		Signal1<String> signal = new Signal1<String>();
+		WObject owner = new WObject();
+
+		signal.addListener(owner, (String s) -> calls.add("weak " + s));
+		signal.addListener(null, (String s) -> calls.add("strong " + s));
+		assertEquals(2, signal.getListenerCount());
+
+		signal.trigger("a");
+		assertEquals(Arrays.asList("strong a", "weak a"), calls);
+	}
+
+	@Test
+	public void testAddDuringEmission() {
+		final List<String> calls = new ArrayList<String>();
+		final Signal signal = new Signal();
+
+		signal.addListener(null, () -> {
+			calls.add("first");
+			signal.addListener(null, () -> calls.add("added"));
+		});
+
+		signal.trigger();
+		assertEquals(Arrays.asList("first"), calls);
+
+		calls.clear();
+		signal.trigger();
+		assertEquals(Arrays.asList("first", "added"), calls);
+	}
+
+	@Test
+	public void testRemoveDuringEmission() {
+		final List<String> calls = new ArrayList<String>();
+		final Signal signal = new Signal();
+		final Signal.Listener second = () -> calls.add("second");
+
+		signal.addListener(null, () -> {
+			calls.add("first");
+			signal.removeListener(second);
+		});
+		signal.addListener(null, second);
+
+		signal.trigger();
+		assertEquals(Arrays.asList("first", "second"), calls);
+
+		calls.clear();
+		signal.trigger();
+		assertEquals(Arrays.asList("first"), calls);
+		assertEquals(1, signal.getListenerCount());
+	}
+
+	@Test
+	public void testBlocked() {
+		final List<String> calls = new ArrayList<String>();
+		Signal signal = new Signal();
+		AbstractSignal.Connection c = signal.addListener(null, () -> calls.add("called"));
+
+		signal.setBlocked(true);
+		signal.trigger();
+		assertTrue(calls.isEmpty());
+
+		signal.setBlocked(false);
+		signal.trigger();
+		assertEquals(1, calls.size());
+
+		c.disconnect();
+		assertFalse(c.isConnected());
+		signal.trigger();
+		assertEquals(1, calls.size());
+	}
+
+	@Test
+	public void testOwnerRemoved() {
+		final List<String> calls = new ArrayList<String>();
+		Signal signal = new Signal();
+		WObject owner = new WObject();
+
+		signal.addListener(owner, () -> calls.add("called"));
+		owner.remove();
+		signal.trigger();
+
+		assertTrue(calls.isEmpty());
+		assertEquals(0, signal.getListenerCount());
+	}
+}
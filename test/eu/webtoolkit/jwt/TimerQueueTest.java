@@ -0,0 +1,72 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimerQueueTest {
+	@Test
+	public void testOrder() {
+		WApplicationTest.createApplication();
+		TimerQueue queue = new TimerQueue();
+		WTimer a = new WTimer(), b = new WTimer(), c = new WTimer();
+
+		queue.schedule(c, 300);
+		queue.schedule(a, 100);
+		TimerQueue.Entry e = queue.schedule(b, 200);
+		assertEquals(3, queue.getActiveCount());
+
+		e.cancel();
+		e.cancel();
+		assertEquals(2, queue.getActiveCount());
+
+		assertEquals(Arrays.asList(), queue.popExpired(99));
+		assertEquals(Arrays.asList(a, c), queue.popExpired(300));
+		assertEquals(0, queue.getActiveCount());
+	}
+
+	@Test
+	public void testRescheduling() {
+		WApplicationTest.createApplication();
+		TimerQueue queue = new TimerQueue();
+		WTimer t = new WTimer();
+
+		TimerQueue.Entry e = queue.schedule(t, 0);
+		for (int i = 1; i <= 1000; ++i) {
+			e.cancel();
+			e = queue.schedule(t, i);
+		}
+		assertEquals(1, queue.getActiveCount());
+
+		List<WTimer> expired = queue.popExpired(1000);
+		assertEquals(Arrays.asList(t), expired);
+	}
+
+	@Test
+	public void testTimer() {
+		WApplication app = WApplicationTest.createApplication();
+		TimerQueue queue = app.getTimerQueue();
+
+		WTimer timer = new WTimer();
+		timer.setInterval(Duration.ofMillis(0));
+		timer.start();
+		assertEquals(1, queue.getActiveCount());
+		timer.start();
+		assertEquals(1, queue.getActiveCount());
+		assertEquals(1, app.getActiveTimerCount());
+
+		timer.stop();
+		assertEquals(0, queue.getActiveCount());
+		assertEquals(0, app.getActiveTimerCount());
+
+		timer.start();
+		assertEquals(Arrays.asList(timer), queue.popExpired(new Time().getMillis()));
+		assertEquals(0, queue.getActiveCount());
+		timer.stop();
+		assertEquals(0, queue.getActiveCount());
+	}
+}
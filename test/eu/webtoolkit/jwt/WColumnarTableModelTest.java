@@ -0,0 +1,173 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.chart.Axis;
+import eu.webtoolkit.jwt.chart.ChartType;
+import eu.webtoolkit.jwt.chart.SeriesType;
+import eu.webtoolkit.jwt.chart.WCartesianChart;
+import eu.webtoolkit.jwt.chart.WDataSeries;
+
+public class WColumnarTableModelTest {
+	@Test
+	public void testColumns() {
+		WColumnarTableModel model = createModel(3);
+
+		assertEquals(3, model.getRowCount(null));
+		assertEquals(5, model.getColumnCount(null));
+		assertEquals("price", model.getHeaderData(2));
+
+		assertEquals(Integer.valueOf(1), model.getData(1, 0));
+		assertEquals(Long.valueOf(1000000000001L), model.getData(1, 1));
+		assertEquals(Double.valueOf(1.5), model.getData(1, 2));
+		assertEquals("name 1", model.getData(1, 3));
+		assertEquals(Boolean.TRUE, model.getData(1, 4));
+		assertEquals(Boolean.FALSE, model.getData(0, 4));
+
+		model.appendRow(7, null, "2.25");
+		assertNull(model.getData(3, 1));
+		assertEquals(Double.valueOf(2.25), model.getData(3, 2));
+		assertNull(model.getData(3, 3));
+
+		assertTrue(model.setData(model.getIndex(3, 1), "42", ItemDataRole.Edit));
+		assertEquals(Long.valueOf(42), model.getData(3, 1));
+		assertFalse(model.setData(model.getIndex(3, 0), "forty-two", ItemDataRole.Edit));
+		assertEquals(Integer.valueOf(7), model.getData(3, 0));
+
+		assertTrue(model.getFlags(model.getIndex(3, 0)).contains(ItemFlag.Editable));
+	}
+
+	@Test
+	public void testInvalidRows() {
+		WColumnarTableModel model = createModel(3);
+
+		final List<String> events = new ArrayList<String>();
+		model.rowsAboutToBeInserted().addListener(null, new Signal3.Listener<WModelIndex, Integer, Integer>() {
+			public void trigger(WModelIndex parent, Integer first, Integer last) {
+				events.add("inserting " + first + "-" + last);
+			}
+		});
+
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 3, 3L, 4.5, "name 3", true });
+		rows.add(new Object[] { "x" });
+		try {
+			model.appendRows(rows);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+
+		assertEquals(3, model.getRowCount(null));
+		assertTrue(events.isEmpty());
+
+		rows.remove(1);
+		model.appendRows(rows);
+		assertEquals(4, model.getRowCount(null));
+		assertEquals("name 3", model.getData(3, 3));
+		assertEquals("[inserting 3-3]", events.toString());
+	}
+
+	@Test
+	public void testRoleData() {
+		WColumnarTableModel model = createModel(3);
+
+		model.setData(model.getIndex(2, 3), "highlight", ItemDataRole.StyleClass);
+		assertEquals("highlight", model.getData(2, 3, ItemDataRole.StyleClass));
+		assertNull(model.getData(2, 2, ItemDataRole.StyleClass));
+		assertEquals("name 2", model.getData(2, 3));
+
+		model.setData(model.getIndex(2, 3), null, ItemDataRole.StyleClass);
+		assertNull(model.getData(2, 3, ItemDataRole.StyleClass));
+	}
+
+	@Test
+	public void testSignals() {
+		WColumnarTableModel model = createModel(0);
+
+		final List<String> events = new ArrayList<String>();
+		model.rowsInserted().addListener(null, new Signal3.Listener<WModelIndex, Integer, Integer>() {
+			public void trigger(WModelIndex parent, Integer first, Integer last) {
+				events.add("inserted " + first + "-" + last);
+			}
+		});
+		model.dataChanged().addListener(null, new Signal2.Listener<WModelIndex, WModelIndex>() {
+			public void trigger(WModelIndex topLeft, WModelIndex bottomRight) {
+				events.add("changed " + topLeft.getRow() + "," + topLeft.getColumn() + "-" + bottomRight.getRow()
+						+ "," + bottomRight.getColumn());
+			}
+		});
+
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < 10; ++i)
+			rows.add(new Object[] { i });
+		model.appendRows(rows);
+
+		model.setValue(0, 0, 5);
+
+		model.beginUpdate();
+		model.setValue(2, 1, 1L);
+		model.setValue(3, 2, 1.0);
+		model.beginUpdate();
+		model.setValue(4, 1, 1L);
+		model.endUpdate();
+		model.setValue(8, 0, 1);
+		model.endUpdate();
+
+		assertEquals("[inserted 0-9, changed 0,0-0,0, changed 2,0-4,2, changed 8,0-8,2]", events.toString());
+	}
+
+	@Test
+	public void testViews() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+		WColumnarTableModel model = createModel(100);
+
+		WSortFilterProxyModel proxy = new WSortFilterProxyModel();
+		proxy.setSourceModel(model);
+		proxy.setDynamicSortFilter(true);
+		proxy.sort(2, SortOrder.Descending);
+		assertEquals(Double.valueOf(50.5), proxy.getData(0, 2));
+
+		model.appendRow(100, 0L, 1000.0);
+		assertEquals(101, proxy.getRowCount(null));
+		assertEquals(Double.valueOf(1000.0), proxy.getData(0, 2));
+
+		WTableView table = new WTableView(app.getRoot());
+		table.setModel(proxy);
+		StringWriter html = new StringWriter();
+		table.htmlText(html);
+		assertTrue(html.toString().contains("name 99"));
+
+		WCartesianChart chart = new WCartesianChart(app.getRoot());
+		chart.setModel(model);
+		chart.setXSeriesColumn(0);
+		chart.setType(ChartType.Scatter);
+		chart.addSeries(new WDataSeries(2, SeriesType.Line));
+		WRasterPaintDevice device = new WRasterPaintDevice("png", new WLength(300), new WLength(200));
+		WPainter painter = new WPainter(device);
+		chart.paint(painter, new WRectF(0, 0, 300, 200));
+		painter.end();
+		assertEquals(1000.0, chart.getAxis(Axis.Y).getMaximum(), 100.0);
+	}
+
+	private static WColumnarTableModel createModel(int rows) {
+		WColumnarTableModel model = new WColumnarTableModel();
+		model.addColumn(WColumnarTableModel.ColumnType.Int, "id");
+		model.addColumn(WColumnarTableModel.ColumnType.Long, "timestamp");
+		model.addColumn(WColumnarTableModel.ColumnType.Double, "price");
+		model.addColumn(WColumnarTableModel.ColumnType.String, "name");
+		model.addColumn(WColumnarTableModel.ColumnType.Boolean, "odd");
+
+		List<Object[]> data = new ArrayList<Object[]>();
+		for (int i = 0; i < rows; ++i)
+			data.add(new Object[] { i, 1000000000000L + i, i * 0.5 + 1, "name " + i, i % 2 == 1 });
+		model.appendRows(data);
+
+		return model;
+	}
+}
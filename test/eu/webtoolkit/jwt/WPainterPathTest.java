@@ -0,0 +1,74 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class WPainterPathTest {
+	@Test
+	public void testPackedSegments() {
+		WPainterPath path = new WPainterPath();
+		path.moveTo(1, 2);
+		path.lineTo(3, 4);
+		path.cubicTo(5, 6, 7, 8, 9, 10);
+
+		assertEquals(5, path.getSegmentCount());
+		assertEquals(SegmentType.MoveTo, path.getSegmentType(0));
+		assertEquals(SegmentType.CubicEnd, path.getSegmentType(4));
+		assertEquals(9.0, path.getSegmentX(4), 0.0);
+		assertEquals(10.0, path.getSegmentY(4), 0.0);
+		assertTrue(new WPointF(9, 10).equals(path.getCurrentPosition()));
+
+		List<WPainterPath.Segment> segments = path.getSegments();
+		assertEquals(5, segments.size());
+		assertEquals(SegmentType.LineTo, segments.get(1).getType());
+		assertEquals(3.0, segments.get(1).getX(), 0.0);
+		assertEquals(4.0, segments.get(1).getY(), 0.0);
+	}
+
+	@Test
+	public void testManySegments() {
+		WPainterPath path = new WPainterPath();
+		path.moveTo(0, 0);
+		for (int i = 1; i < 100000; ++i)
+			path.lineTo(i, i % 7);
+
+		assertEquals(100000, path.getSegmentCount());
+		assertEquals(99999.0, path.getSegmentX(99999), 0.0);
+		assertEquals(99999 % 7, path.getSegmentY(99999), 0.0);
+		assertTrue(new WRectF(0, 0, 99999, 6).equals(path.getControlPointRect()));
+	}
+
+	@Test
+	public void testCopyAndAddPath() {
+		WPainterPath path = new WPainterPath(new WPointF(1, 1));
+		path.lineTo(2, 2);
+
+		WPainterPath copy = new WPainterPath(path);
+		assertTrue(copy.equals(path));
+
+		copy.lineTo(3, 3);
+		assertFalse(copy.equals(path));
+		assertEquals(2, path.getSegmentCount());
+
+		WPainterPath other = new WPainterPath();
+		other.setOpenSubPathsEnabled(true);
+		other.addPath(path);
+		other.addPath(copy);
+		assertTrue(new WPointF(3, 3).equals(other.getCurrentPosition()));
+	}
+
+	@Test
+	public void testTransform() {
+		WPainterPath path = new WPainterPath();
+		path.moveTo(1, 2);
+		path.lineTo(3, 4);
+
+		WPainterPath mapped = new WTransform().translate(10, 20).map(path);
+		assertEquals(2, mapped.getSegmentCount());
+		assertEquals(11.0, mapped.getSegmentX(0), 0.0);
+		assertEquals(24.0, mapped.getSegmentY(1), 0.0);
+	}
+}
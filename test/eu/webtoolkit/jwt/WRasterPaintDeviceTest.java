@@ -0,0 +1,114 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class WRasterPaintDeviceTest {
+	@Test
+	public void testTiledRendering() throws Exception {
+		WRasterPaintDevice direct = new WRasterPaintDevice("png", new WLength(400), new WLength(700));
+		paint(direct);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			WRasterPaintDevice tiled = new WRasterPaintDevice("png", new WLength(400), new WLength(700));
+			tiled.setTiledRendering(pool);
+			paint(tiled);
+
+			BufferedImage expected = decode(direct);
+			BufferedImage actual = decode(tiled);
+			// anti-aliased edges may differ slightly, since each strip is clipped
+			int differences = 0;
+			for (int y = 0; y < expected.getHeight(); ++y)
+				for (int x = 0; x < expected.getWidth(); ++x)
+					if (expected.getRGB(x, y) != actual.getRGB(x, y))
+						++differences;
+
+			assertTrue(differences < expected.getWidth() * expected.getHeight() / 100);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompressionLevel() throws Exception {
+		WRasterPaintDevice device = new WRasterPaintDevice("png", new WLength(300), new WLength(300));
+		device.setCompressionLevel(0);
+		paint(device);
+		byte[] stored = device.getImageData();
+
+		device.setCompressionLevel(9);
+		device.done();
+		byte[] compressed = device.getImageData();
+
+		assertTrue(stored.length > compressed.length);
+		assertEquals(decode(stored).getRGB(150, 150), decode(compressed).getRGB(150, 150));
+
+		try {
+			device.setCompressionLevel(10);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testImagePool() throws Exception {
+		RasterImagePool.clear();
+
+		WRasterPaintDevice device = new WRasterPaintDevice("png", new WLength(50), new WLength(40));
+		paint(device);
+		device.remove();
+		assertEquals(50 * 40, RasterImagePool.getPooledPixels());
+
+		WRasterPaintDevice other = new WRasterPaintDevice("png", new WLength(50), new WLength(40));
+		assertEquals(0, RasterImagePool.getPooledPixels());
+
+		WPainter painter = new WPainter(other);
+		painter.end();
+		BufferedImage image = decode(other);
+		for (int y = 0; y < image.getHeight(); ++y)
+			for (int x = 0; x < image.getWidth(); ++x)
+				assertEquals(0, image.getRGB(x, y));
+	}
+
+	private static void paint(WPaintDevice device) {
+		WPainter painter = new WPainter(device);
+		painter.setRenderHint(RenderHint.Antialiasing, true);
+
+		painter.setBrush(new WBrush(new WColor(200, 30, 30)));
+		painter.drawEllipse(new WRectF(20, 20, 260, 400));
+
+		painter.save();
+		WPainterPath clip = new WPainterPath();
+		clip.addEllipse(new WRectF(50, 100, 300, 500));
+		painter.setClipPath(clip);
+		painter.setClipping(true);
+		painter.rotate(15);
+		painter.setPen(new WPen(new WColor(10, 10, 200)));
+		for (int i = 0; i < 40; ++i)
+			painter.drawLine(0, i * 17, 500, 700 - i * 13);
+		painter.restore();
+
+		painter.setFont(new WFont(FontFamily.SansSerif));
+		painter.drawText(new WRectF(10, 300, 380, 40), EnumSet.of(AlignmentFlag.Center, AlignmentFlag.Middle),
+				"Tiled rendering");
+
+		painter.end();
+	}
+
+	private static BufferedImage decode(WRasterPaintDevice device) throws Exception {
+		return decode(device.getImageData());
+	}
+
+	private static BufferedImage decode(byte[] png) throws Exception {
+		return ImageIO.read(new ByteArrayInputStream(png));
+	}
+}
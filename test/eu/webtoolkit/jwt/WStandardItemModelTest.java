@@ -0,0 +1,107 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WStandardItemModelTest {
+	private static final List<ItemDataRole> ROLES = Arrays.asList(ItemDataRole.Display, ItemDataRole.StyleClass,
+			ItemDataRole.ToolTip);
+
+	@Test
+	public void testDataRoles() {
+		WStandardItemModel model = createModel();
+
+		assertArrayEquals(new Object[] { "2,1", "c1", null }, model.getData(model.getIndex(2, 1), ROLES));
+		assertArrayEquals(new Object[] { null, null, null }, model.getData(model.getIndex(2, 3), ROLES));
+	}
+
+	@Test
+	public void testDataBlock() {
+		WStandardItemModel model = createModel();
+		checkBlock(model, null);
+
+		WModelIndex parent = model.getIndex(1, 0);
+		checkBlock(model, parent);
+
+		WIdentityProxyModel identity = new WIdentityProxyModel();
+		identity.setSourceModel(model);
+		checkBlock(identity, null);
+		checkBlock(identity, identity.getIndex(1, 0));
+
+		WSortFilterProxyModel sorted = new WSortFilterProxyModel();
+		sorted.setSourceModel(model);
+		sorted.sort(0, SortOrder.Descending);
+		checkBlock(sorted, null);
+		assertArrayEquals(new Object[] { "3,1", "c1", null },
+				sorted.getData(sorted.getIndex(0, 1), ROLES));
+	}
+
+	@Test
+	public void testOverriddenData() {
+		WStandardItemModel model = createModel();
+
+		WSortFilterProxyModel sorted = new WSortFilterProxyModel() {
+			@Override
+			public Object getData(WModelIndex index, ItemDataRole role) {
+				Object result = super.getData(index, role);
+				return role == ItemDataRole.Display && result != null ? "proxy " + result : result;
+			}
+		};
+		sorted.setSourceModel(model);
+		assertArrayEquals(new Object[] { "proxy 2,1", "c1", null }, sorted.getData(sorted.getIndex(2, 1), ROLES));
+		checkBlock(sorted, null);
+
+		WIdentityProxyModel identity = new WIdentityProxyModel() {
+			@Override
+			public Object getData(WModelIndex index, ItemDataRole role) {
+				Object result = super.getData(index, role);
+				return role == ItemDataRole.StyleClass ? "proxy" : result;
+			}
+		};
+		identity.setSourceModel(model);
+		assertEquals("proxy", identity.getDataBlock(null, 0, 0, 1, 1, ROLES)[1]);
+		checkBlock(identity, null);
+
+		WStandardItemModel derived = new WStandardItemModel(2, 2) {
+			@Override
+			public Object getData(WModelIndex index, ItemDataRole role) {
+				return role == ItemDataRole.Display ? "derived" : super.getData(index, role);
+			}
+		};
+		assertEquals("derived", derived.getDataBlock(null, 0, 0, 1, 1, ROLES)[0]);
+		checkBlock(derived, null);
+	}
+
+	private static void checkBlock(WAbstractItemModel model, WModelIndex parent) {
+		int rows = model.getRowCount(parent) - 1, columns = model.getColumnCount(parent) - 1;
+		Object[] block = model.getDataBlock(parent, 1, 1, rows, columns, ROLES);
+		assertEquals(rows * columns * ROLES.size(), block.length);
+
+		for (int r = 0; r < rows; ++r)
+			for (int c = 0; c < columns; ++c)
+				for (int k = 0; k < ROLES.size(); ++k)
+					assertEquals(model.getData(1 + r, 1 + c, ROLES.get(k), parent),
+							block[(r * columns + c) * ROLES.size() + k]);
+	}
+
+	private static WStandardItemModel createModel() {
+		WStandardItemModel model = new WStandardItemModel(4, 4);
+		for (int row = 0; row < 4; ++row)
+			for (int column = 0; column < 3; ++column) {
+				WStandardItem item = new WStandardItem(row + "," + column);
+				item.setStyleClass("c" + column);
+				model.setItem(row, column, item);
+			}
+
+		WStandardItem parent = model.getItem(1, 0);
+		parent.setColumnCount(3);
+		for (int row = 0; row < 3; ++row)
+			parent.appendRow(Arrays.asList(new WStandardItem("child " + row), new WStandardItem("x" + row)));
+
+		return model;
+	}
+}
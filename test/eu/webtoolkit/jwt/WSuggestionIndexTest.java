@@ -0,0 +1,63 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WSuggestionIndexTest {
+	@Test
+	public void testPrefix() {
+		WSuggestionIndex index = new WSuggestionIndex(Arrays.asList("Leuven", "Brussel", "Herent", "Heverlee", "Hasselt", "Heist"));
+
+		assertEquals(6, index.getCount());
+		assertEquals(Arrays.asList("Heist", "Herent", "Heverlee"), texts(index, "He", 10));
+		assertEquals(Arrays.asList("Heist", "Herent"), texts(index, "He", 2));
+		assertEquals(3, index.getMatchCount("He"));
+		assertEquals(6, index.getMatchCount(""));
+		assertEquals(Arrays.asList("Herent"), texts(index, "Herent", 10));
+		assertEquals(0, index.getMatchCount("Herentals"));
+		assertEquals(0, index.getMatchCount("he"));
+		assertEquals(0, index.getMatchCount("Z"));
+	}
+
+	@Test
+	public void testFolding() {
+		List<String> texts = Arrays.asList("Éric", "erik", "Ernest", "Zoë");
+		List<String> values = Arrays.asList("1", null, "3", "4");
+		WSuggestionIndex index = new WSuggestionIndex(texts, values,
+				EnumSet.of(WSuggestionIndex.Folding.Case, WSuggestionIndex.Folding.Diacritics));
+
+		assertEquals(Arrays.asList("Éric", "erik"), texts(index, "ERI", 10));
+		assertEquals(Arrays.asList("Éric", "erik"), texts(index, "éri", 10));
+		assertEquals(Arrays.asList("Zoë"), texts(index, "zoe", 10));
+
+		int[] matches = index.find("er", 10);
+		assertEquals("1", index.getValue(matches[0]));
+		assertEquals("erik", index.getValue(matches[1]));
+		assertEquals("3", index.getValue(matches[2]));
+	}
+
+	@Test
+	public void testLarge() {
+		List<String> texts = new ArrayList<String>();
+		for (int i = 0; i < 100000; ++i)
+			texts.add(String.format("%06d", i));
+		WSuggestionIndex index = new WSuggestionIndex(texts);
+
+		assertEquals(100, index.getMatchCount("0123"));
+		assertEquals(Arrays.asList("012300", "012301", "012302"), texts(index, "0123", 3));
+		assertEquals(1, index.getMatchCount("099999"));
+	}
+
+	private static List<String> texts(WSuggestionIndex index, String prefix, int limit) {
+		List<String> result = new ArrayList<String>();
+		for (int i : index.find(prefix, limit))
+			result.add(index.getText(i));
+		return result;
+	}
+}
@@ -59,4 +59,59 @@ public class WTreeViewTest {
 		assertFalse(tree.isExpanded(model.getIndex(1, 0, model.getIndex(2, 0))));
 		assertFalse(tree.isExpanded(model.getIndex(0, 0, model.getIndex(1, 0, model.getIndex(2, 0)))));
 	}
+
+	@Test
+	public void test_SubTreeHeight() {
+		Configuration configuration = new Configuration();
+		WTestEnvironment env = new WTestEnvironment(configuration);
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = new WStandardItemModel();
+
+		WStandardItem root = model.getInvisibleRootItem();
+		for (int i = 0; i < 5; ++i) {
+			WStandardItem item = new WStandardItem("level 1, row " + i);
+			for (int j = 0; j < 4; ++j) {
+				WStandardItem subItem = new WStandardItem("level 2, row " + j);
+				for (int k = 0; k < 3; ++k)
+					subItem.appendRow(new WStandardItem("level 3, row " + k));
+				item.appendRow(subItem);
+			}
+			root.appendRow(item);
+		}
+
+		WTreeView tree = new WTreeView(app.getRoot());
+		tree.setModel(model);
+		assertEquals(5, tree.subTreeHeight(null));
+
+		tree.expand(model.getIndex(1, 0));
+		assertEquals(9, tree.subTreeHeight(null));
+		assertEquals(5, tree.subTreeHeight(model.getIndex(1, 0)));
+
+		tree.expand(model.getIndex(2, 0, model.getIndex(1, 0)));
+		assertEquals(12, tree.subTreeHeight(null));
+
+		// expanding a node below a collapsed one only changes its own height
+		tree.expand(model.getIndex(0, 0, model.getIndex(3, 0)));
+		assertEquals(12, tree.subTreeHeight(null));
+		assertEquals(4, tree.subTreeHeight(model.getIndex(0, 0, model.getIndex(3, 0))));
+
+		tree.expand(model.getIndex(3, 0));
+		assertEquals(19, tree.subTreeHeight(null));
+
+		tree.collapse(model.getIndex(1, 0));
+		assertEquals(12, tree.subTreeHeight(null));
+
+		tree.expand(model.getIndex(1, 0));
+		assertEquals(19, tree.subTreeHeight(null));
+
+		model.getItem(1, 0).getChild(2, 0).appendRow(new WStandardItem("level 3, row 3"));
+		assertEquals(20, tree.subTreeHeight(null));
+
+		model.removeRows(0, 2);
+		assertEquals(10, tree.subTreeHeight(null));
+
+		tree.collapseAll();
+		assertEquals(3, tree.subTreeHeight(null));
+	}
 }
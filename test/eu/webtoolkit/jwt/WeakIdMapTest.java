@@ -0,0 +1,82 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WeakIdMapTest {
+	@Test
+	public void testEncode() {
+		assertEquals("s0", WeakIdMap.encode('s', 0));
+		assertEquals("sZ", WeakIdMap.encode('s', 61));
+		assertEquals("s10", WeakIdMap.encode('s', 62));
+
+		int[] ids = { 0, 1, 61, 62, 12345678, Integer.MAX_VALUE, Integer.MIN_VALUE, -1 };
+		for (int id : ids) {
+			String s = WeakIdMap.encode('w', id);
+			assertTrue(s.length() <= 7);
+			assertEquals(id, (int) WeakIdMap.decode(s, 'w'));
+			assertEquals(-1, WeakIdMap.decode(s, 's'));
+		}
+
+		assertEquals(-1, WeakIdMap.decode("s", 's'));
+		assertEquals(-1, WeakIdMap.decode("o1a.resized", 's'));
+		assertEquals(-1, WeakIdMap.decode("s1-2", 's'));
+		assertEquals(-1, WeakIdMap.decode("sZZZZZZ", 's'));
+	}
+
+	@Test
+	public void testPutRemove() {
+		WeakIdMap<String> map = new WeakIdMap<String>();
+		List<String> values = new ArrayList<String>();
+
+		for (int i = 0; i < 1000; ++i) {
+			String v = "v" + i;
+			values.add(v);
+			map.put(i * 1024, v);
+		}
+		assertEquals(1000, map.size());
+
+		for (int i = 0; i < 1000; i += 2)
+			assertSame(values.get(i), map.remove(i * 1024));
+		assertNull(map.remove(0));
+		assertEquals(500, map.size());
+
+		for (int i = 0; i < 1000; ++i) {
+			if (i % 2 == 0)
+				assertNull(map.get(i * 1024));
+			else
+				assertSame(values.get(i), map.get(i * 1024));
+		}
+		assertEquals(500, map.values().size());
+
+		map.put(1024, "replaced");
+		assertEquals("replaced", map.get(1024));
+		assertEquals(500, map.size());
+	}
+
+	@Test
+	public void testSignals() {
+		WApplication app = WApplicationTest.createApplication();
+		WContainerWidget w = new WContainerWidget();
+		app.getRoot().addWidget(w);
+
+		EventSignal1<WMouseEvent> clicked = w.clicked();
+		clicked.addListener(w, (WMouseEvent e) -> {
+		});
+		String id = clicked.encodeCmd();
+		assertSame(id, clicked.encodeCmd());
+		assertSame(clicked, app.decodeExposedSignal(id));
+
+		app.removeExposedSignal(clicked);
+		assertNull(app.decodeExposedSignal(id));
+		assertTrue(app.getJustRemovedSignals().contains(id));
+
+		String objectId = app.encodeObject(w);
+		assertSame(w, app.decodeObject(objectId));
+		assertNull(app.decodeObject("x"));
+	}
+}
@@ -0,0 +1,180 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import eu.webtoolkit.jwt.WApplication;
+
+public class HttpClientTest {
+  private HttpServer server;
+  private Set<Integer> clientPorts;
+
+  @Before
+  public void setUp() throws IOException {
+    clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/hello", (HttpExchange exchange) -> {
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+      reply(exchange, 200, "hello\nworld");
+    });
+    server.createContext("/echo", (HttpExchange exchange) -> {
+      InputStream in = exchange.getRequestBody();
+      String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      reply(exchange, 201, exchange.getRequestMethod() + " "
+          + exchange.getRequestHeaders().getFirst("X-Test") + " " + body);
+    });
+    server.createContext("/large", (HttpExchange exchange) -> {
+      reply(exchange, 200, new String(new char[4096]).replace('\0', 'x'));
+    });
+    server.createContext("/slow", (HttpExchange exchange) -> {
+      try {
+        Thread.sleep(2000);
+      } catch (InterruptedException e) {
+      }
+      reply(exchange, 200, "late");
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private static class Result {
+    Exception error;
+    HttpMessage message;
+  }
+
+  private static Result collect(HttpClient client, List<Result> results) {
+    Result r = new Result();
+    client.done().addListener(null, (Exception e, HttpMessage m) -> {
+      r.error = e;
+      r.message = m;
+      results.add(r);
+    });
+    return r;
+  }
+
+  @Test
+  public void testGet() {
+    HttpClient client = new HttpClient();
+    Result r = collect(client, new ArrayList<Result>());
+    client.get(url("/hello"));
+
+    assertNull(r.error);
+    assertEquals(200, r.message.getStatus());
+    assertEquals("hello\nworld", r.message.getBody());
+  }
+
+  @Test
+  public void testSynchronous() {
+    assertFalse(new HttpClient().isAsynchronous());
+    assertFalse(new HttpClient((WApplication) null).isAsynchronous());
+    assertTrue(new HttpClient((Runnable r) -> r.run()).isAsynchronous());
+  }
+
+  @Test
+  public void testPost() {
+    HttpClient client = new HttpClient();
+    Result r = collect(client, new ArrayList<Result>());
+    HttpMessage message = new HttpMessage();
+    message.setHeader("X-Test", "abc");
+    message.addBodyText("grant_type=authorization_code");
+    client.post(url("/echo"), message);
+
+    assertNull(r.error);
+    assertEquals(201, r.message.getStatus());
+    assertEquals("POST abc grant_type=authorization_code", r.message.getBody());
+  }
+
+  @Test
+  public void testConnectionReuse() {
+    for (int i = 0; i < 5; ++i) {
+      HttpClient client = new HttpClient();
+      Result r = collect(client, new ArrayList<Result>());
+      client.get(url("/hello"));
+      assertNull(r.error);
+    }
+
+    assertEquals(1, clientPorts.size());
+  }
+
+  @Test
+  public void testMaximumResponseSize() {
+    HttpClient client = new HttpClient();
+    client.setMaximumResponseSize(1024);
+    Result r = collect(client, new ArrayList<Result>());
+    client.get(url("/large"));
+
+    assertNotNull(r.error);
+    assertNull(r.message);
+  }
+
+  @Test
+  public void testReadTimeout() {
+    HttpClient client = new HttpClient();
+    client.setReadTimeout(Duration.ofMillis(200));
+    Result r = collect(client, new ArrayList<Result>());
+    client.get(url("/slow"));
+
+    assertNotNull(r.error);
+  }
+
+  @Test
+  public void testAsyncCompletion() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Thread caller = Thread.currentThread();
+    final List<Thread> completionThreads = new ArrayList<Thread>();
+    HttpClient client = new HttpClient((Runnable r) -> {
+      completionThreads.add(Thread.currentThread());
+      r.run();
+      latch.countDown();
+    });
+    List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+    collect(client, results);
+    client.get(url("/hello"));
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(1, results.size());
+    assertNull(results.get(0).error);
+    assertEquals("hello\nworld", results.get(0).message.getBody());
+    assertTrue(completionThreads.get(0) != caller);
+  }
+}
@@ -0,0 +1,86 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MemoryAuthThrottleTest {
+  private static class TestThrottle extends MemoryAuthThrottle {
+    long time = 1000000;
+
+    TestThrottle(int maxEntries, int windowSeconds) {
+      super(maxEntries, windowSeconds);
+    }
+
+    @Override
+    long now() {
+      return time;
+    }
+  }
+
+  @Test
+  public void testUserSchedule() {
+    TestThrottle throttle = new TestThrottle(1000, 900);
+
+    assertEquals(0, throttle.delayForNextAttempt("alice", ""));
+    assertEquals(1, throttle.recordAttempt("alice", "", false));
+    assertEquals(1, throttle.delayForNextAttempt("alice", ""));
+    assertEquals(2, throttle.recordAttempt("alice", "", false));
+    assertEquals(5, throttle.delayForNextAttempt("alice", ""));
+
+    throttle.time += 3000;
+    assertEquals(2, throttle.delayForNextAttempt("alice", ""));
+    assertEquals(0, throttle.delayForNextAttempt("bob", ""));
+  }
+
+  @Test
+  public void testPersistOnlyTransitions() {
+    TestThrottle throttle = new TestThrottle(1000, 900);
+
+    int persisted = 0;
+    for (int i = 0; i < 100; ++i) {
+      if (throttle.recordAttempt("alice", "", false) >= 0)
+        ++persisted;
+    }
+    assertEquals(4, persisted);
+
+    assertEquals(0, throttle.recordAttempt("alice", "", true));
+    assertEquals(-1, throttle.recordAttempt("alice", "", true));
+    assertEquals(0, throttle.delayForNextAttempt("alice", ""));
+  }
+
+  @Test
+  public void testClientAddress() {
+    TestThrottle throttle = new TestThrottle(1000, 900);
+
+    for (int i = 0; i < 10; ++i)
+      throttle.recordAttempt("user" + i, "10.0.0.1", false);
+
+    assertEquals(5, throttle.delayForNextAttempt("other", "10.0.0.1"));
+    assertEquals(0, throttle.delayForNextAttempt("other", "10.0.0.2"));
+  }
+
+  @Test
+  public void testWindowExpiry() {
+    TestThrottle throttle = new TestThrottle(1000, 60);
+
+    for (int i = 0; i < 4; ++i)
+      throttle.recordAttempt("alice", "", false);
+    assertEquals(25, throttle.delayForNextAttempt("alice", ""));
+
+    throttle.time += 120 * 1000;
+    assertEquals(0, throttle.delayForNextAttempt("alice", ""));
+    assertEquals(1, throttle.recordAttempt("alice", "", false));
+  }
+
+  @Test
+  public void testBoundedEntries() {
+    TestThrottle throttle = new TestThrottle(64, 900);
+
+    throttle.recordAttempt("alice", "", false);
+    for (int i = 0; i < 100000; ++i)
+      throttle.recordAttempt("user" + i, "", false);
+
+    assertEquals(0, throttle.delayForNextAttempt("alice", ""));
+  }
+}
@@ -0,0 +1,48 @@
+package eu.webtoolkit.jwt.auth.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class AuthTokenCacheTest {
+  @Test
+  public void testLookup() {
+    AuthTokenCache cache = new AuthTokenCache(10);
+    Date now = new Date(1000000);
+    cache.put("hash", "42", new Date(2000000));
+
+    assertEquals("42", cache.get("hash", now));
+    assertNull(cache.get("other", now));
+
+    cache.remove("hash");
+    assertNull(cache.get("hash", now));
+  }
+
+  @Test
+  public void testExpiry() {
+    AuthTokenCache cache = new AuthTokenCache(10);
+    cache.put("hash", "42", new Date(2000000));
+
+    assertNull(cache.get("hash", new Date(2000000)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testBounded() {
+    AuthTokenCache cache = new AuthTokenCache(2);
+    Date now = new Date(1000000);
+    Date expires = new Date(2000000);
+    cache.put("a", "1", expires);
+    cache.put("b", "2", expires);
+    cache.get("a", now);
+    cache.put("c", "3", expires);
+
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get("a", now));
+    assertNull(cache.get("b", now));
+    assertEquals("3", cache.get("c", now));
+  }
+}
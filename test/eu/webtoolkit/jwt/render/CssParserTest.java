@@ -2,6 +2,10 @@ package eu.webtoolkit.jwt.render;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import eu.webtoolkit.jwt.render.CssParser;
@@ -136,4 +140,38 @@ public class CssParserTest {
         localAssert(sheet);
 	}
 
+	@Test
+	public void testParseCached() {
+		CssParser parser = new CssParser();
+
+		StyleSheet s = parser.parseCached("p { color: red }");
+		assertNotNull(s);
+		assertSame(s, new CssParser().parseCached("p { color: red }"));
+		assertNotSame(s, parser.parseCached("p { color: blue }"));
+
+		assertNull(parser.parseCached("h1{test;:\"bla\"}"));
+		assertFalse(parser.getLastError().isEmpty());
+		parser.parseCached("p { color: red }");
+		assertTrue(parser.getLastError().isEmpty());
+		assertNull(new CssParser().parseCached("h1{test;:\"bla\"}"));
+	}
+
+	@Test
+	public void testCollectRulesets() {
+		CssParser parser = new CssParser();
+		StyleSheet s = parser.parse(
+				"* { a: 0 } p { a: 1 } div { a: 2 } #main { a: 3 } .x { a: 4 } "
+				+ "div.y { a: 5 } .z { a: 6 } div p { a: 7 } div#other { a: 8 }");
+
+		Block doc = new Block(RenderUtils.parseXHTML("<div id=\"main\" class=\"x y\">text</div>"), null);
+		Block div = doc.getChildren().get(0);
+
+		List<Ruleset> rulesets = new ArrayList<Ruleset>();
+		s.collectRulesets(div, rulesets);
+
+		List<String> declarations = new ArrayList<String>();
+		for (Ruleset r : rulesets)
+			declarations.add(r.getDeclarationBlock().getDeclarationString());
+		assertEquals(Arrays.asList("a: 0 ", "a: 2 ", "a: 3 ", "a: 4 ", "a: 5 "), declarations);
+	}
 }
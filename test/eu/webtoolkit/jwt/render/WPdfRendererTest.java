@@ -0,0 +1,60 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.pdfjet.Letter;
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+public class WPdfRendererTest {
+	private static String createDocument() {
+		StringBuilder doc = new StringBuilder();
+		doc.append("<style>.note { color: #800000; font-weight: bold } td { border: 1px solid black }</style>");
+		for (int i = 0; i < 40; ++i) {
+			doc.append("<h2>Section ").append(i).append("</h2>");
+			doc.append("<p style=\"background-color: #eeeeee\">");
+			for (int j = 0; j < 60; ++j)
+				doc.append("word").append((i * j) % 17).append(' ');
+			doc.append("<span class=\"note\">note ").append(i).append("</span></p>");
+			doc.append("<table><tr><td>").append(i).append("</td><td>cell</td></tr></table>");
+		}
+		return doc.toString();
+	}
+
+	private static String render(String doc, ForkJoinPool pool) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PDF pdf = new PDF(out);
+		WPdfRenderer renderer = new WPdfRenderer(pdf, new Page(pdf, Letter.PORTRAIT));
+		renderer.setMargin(2);
+		renderer.setDpi(96);
+		renderer.setParallelRendering(pool);
+		renderer.render(doc);
+		pdf.flush();
+
+		// the creation date and the document id are the only parts that change between runs
+		return out.toString("ISO-8859-1")
+			.replaceAll("/CreationDate \\(D:[0-9]+Z\\)", "")
+			.replaceAll("/ID\\[<[0-9a-f]+><[0-9a-f]+>\\]", "");
+	}
+
+	@Test
+	public void testParallelRendering() throws Exception {
+		String doc = createDocument();
+
+		String sequential = render(doc, null);
+		assertTrue(sequential.split("/Type /Page\n").length > 3);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			String parallel = render(doc, pool);
+			assertEquals(sequential, parallel);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
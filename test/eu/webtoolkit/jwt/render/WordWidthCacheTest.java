@@ -0,0 +1,118 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.FontFamily;
+import eu.webtoolkit.jwt.WFont;
+import eu.webtoolkit.jwt.WLength;
+import eu.webtoolkit.jwt.WPainter;
+import eu.webtoolkit.jwt.WPdfImage;
+import eu.webtoolkit.jwt.WTextItem;
+
+public class WordWidthCacheTest {
+	private static final String TEXT = "The quick brown fox jumps over the lazy dog and the quick brown cat";
+
+	@Test
+	public void testMeasureWrapped() {
+		WPdfImage device = new WPdfImage(new WLength(500), new WLength(500));
+		WPainter painter = new WPainter(device);
+		WFont font = new WFont(FontFamily.SansSerif);
+		font.setSize(new WLength(12));
+		painter.setFont(font);
+
+		WordWidthCache cache = new WordWidthCache();
+		cache.select(device, font);
+
+		for (int start : new int[] { 0, 4, 10 }) {
+			for (double maxWidth : new double[] { 1, 30, 60, 100, 200, Double.MAX_VALUE }) {
+				WTextItem expected = device.measureText(TEXT.substring(start), maxWidth, true);
+				WTextItem actual = cache.measureWrapped(TEXT, start, maxWidth);
+				assertEquals(expected.getText().toString(), actual.getText().toString());
+				assertEquals(expected.getWidth(), actual.getWidth(), 1E-3);
+			}
+		}
+
+		painter.end();
+	}
+
+	@Test
+	public void testMeasureWrappedWhitespace() {
+		WPdfImage device = new WPdfImage(new WLength(500), new WLength(500));
+		WPainter painter = new WPainter(device);
+		WFont font = new WFont(FontFamily.SansSerif);
+		font.setSize(new WLength(12));
+		painter.setFont(font);
+
+		WordWidthCache cache = new WordWidthCache();
+		cache.select(device, font);
+
+		String text = TEXT.replace(" fox ", "\tfox\t");
+		for (double maxWidth : new double[] { 30, 100, Double.MAX_VALUE }) {
+			WTextItem expected = device.measureText(text, maxWidth, true);
+			WTextItem actual = cache.measureWrapped(text, 0, maxWidth);
+			assertEquals(expected.getText().toString(), actual.getText().toString());
+			assertEquals(expected.getWidth(), actual.getWidth(), 1E-9);
+		}
+
+		painter.end();
+	}
+
+	@Test
+	public void testMeasureWrappedOtherDevice() {
+		final List<CharSequence> wrapped = new ArrayList<CharSequence>();
+		WPdfImage device = new WPdfImage(new WLength(500), new WLength(500)) {
+			@Override
+			public WTextItem measureText(CharSequence text, double maxWidth, boolean wordWrap) {
+				if (wordWrap)
+					wrapped.add(text);
+				return super.measureText(text, maxWidth, wordWrap);
+			}
+		};
+		WPainter painter = new WPainter(device);
+		WFont font = new WFont(FontFamily.SansSerif);
+		font.setSize(new WLength(12));
+		painter.setFont(font);
+
+		WordWidthCache cache = new WordWidthCache();
+		cache.select(device, font);
+
+		WTextItem item = cache.measureWrapped(TEXT, 4, 100);
+		assertEquals(Arrays.asList(TEXT.substring(4)), wrapped);
+		assertEquals(device.measureText(TEXT.substring(4), 100, true).getText().toString(), item.getText().toString());
+
+		painter.end();
+	}
+
+	@Test
+	public void testFonts() {
+		WPdfImage device = new WPdfImage(new WLength(500), new WLength(500));
+		WPainter painter = new WPainter(device);
+		WFont small = new WFont(FontFamily.SansSerif);
+		small.setSize(new WLength(10));
+		WFont large = new WFont(FontFamily.SansSerif);
+		large.setSize(new WLength(20));
+
+		WordWidthCache cache = new WordWidthCache();
+
+		painter.setFont(small);
+		cache.select(device, small);
+		double smallWidth = cache.getWidth("word");
+		assertEquals(device.measureText("word").getWidth(), smallWidth, 1E-9);
+
+		painter.setFont(large);
+		cache.select(device, large);
+		assertEquals(2 * smallWidth, cache.getWidth("word"), 1E-3);
+
+		double[] widths = device.measureWords(Arrays.asList("a", "word"));
+		assertEquals(device.measureText("a").getWidth(), widths[0], 1E-9);
+		assertEquals(cache.getWidth("word"), widths[1], 1E-9);
+
+		painter.end();
+	}
+}
@@ -0,0 +1,126 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class LocaleUtilsTest {
+  private static final Locale[] LOCALES = {
+    new Locale(""), Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("de", "CH"),
+    new Locale("sv", "SE"), new Locale("hi", "IN"), new Locale("ar", "EG"), new Locale("fa", "IR")
+  };
+
+  @Test
+  public void testToString() {
+    Random random = new Random(42);
+    for (Locale locale : LOCALES) {
+      NumberFormat nf = NumberFormat.getInstance(locale);
+      int[] ints = { 0, 1, -1, 999, 1000, -1000, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE };
+      for (int i : ints) {
+        assertEquals(nf.format(i), LocaleUtils.toString(locale, i));
+        assertEquals(nf.format(i), LocaleUtils.toString(locale, (Number) i));
+      }
+      assertEquals(nf.format(Long.MIN_VALUE), LocaleUtils.toString(locale, (Number) Long.MIN_VALUE));
+
+      double[] doubles = { 0.0, -0.0, 0.001, -0.001, 0.0005, 0.0015, 0.1, 0.5, 1.25, -1.25, 1234.5678, 1E14,
+          -1E14 - 0.5, 1E20, 1E-20, -1E-20, Double.NaN, Double.POSITIVE_INFINITY, 0.1 + 0.2 };
+      for (double d : doubles)
+        assertEquals(nf.format(d), LocaleUtils.toString(locale, d));
+
+      for (int k = 0; k < 10000; ++k) {
+        double d = Math.round(random.nextGaussian() * 1E6) / Math.pow(10, random.nextInt(6));
+        assertEquals(nf.format(d), LocaleUtils.toString(locale, d));
+        assertEquals(nf.format(d), LocaleUtils.toString(locale, (Number) d));
+      }
+    }
+  }
+
+  @Test
+  public void testPattern() {
+    assertEquals(new DecimalFormat("#.00").format(3.14159), LocaleUtils.toString("#.00", 3.14159));
+    assertEquals(new DecimalFormat("#.00").format(3), LocaleUtils.toString("#.00", 3));
+    assertEquals(new DecimalFormat("0000").format(42L), LocaleUtils.toString("0000", 42L));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    final Locale locale = new Locale("ar", "EG");
+    final NumberFormat nf = NumberFormat.getInstance(locale);
+    final double[] doubles = { 1234.5678, -0.0005, 1E20 };
+    final List<String> expected = new ArrayList<String>();
+    for (double d : doubles)
+      expected.add(nf.format(d));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int t = 0; t < 4; ++t) {
+        final int precision = t;
+        results.add(executor.submit(() -> {
+          for (int k = 0; k < 2000; ++k) {
+            LocaleUtils.toFixedString(locale, 1.23456, precision);
+            for (int i = 0; i < doubles.length; ++i)
+              if (!expected.get(i).equals(LocaleUtils.toString(locale, doubles[i])))
+                return false;
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> result : results)
+        assertEquals(true, result.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParse() {
+    String[] values = { "0", "-0", "12", "-12", "1.5", "1,5", "1,234", "1.234,5", "1 234", "12345678901234567890",
+        "2147483648", " 42 ", "1.", ".5", "-", "", "abc", "1e5", "+1" };
+    for (Locale locale : LOCALES) {
+      for (String value : values) {
+        assertParse(locale, value, false);
+        assertParse(locale, value, true);
+      }
+    }
+  }
+
+  private static void assertParse(Locale locale, String value, boolean integer) {
+    String expected;
+    try {
+      String v = value.trim();
+      NumberFormat nf = NumberFormat.getInstance(locale);
+      nf.setParseIntegerOnly(integer);
+      ParsePosition pos = new ParsePosition(0);
+      Number n = nf.parse(v, pos);
+      if (pos.getIndex() != v.length())
+        throw new NumberFormatException();
+      expected = integer ? String.valueOf(n.intValue()) : String.valueOf(n.doubleValue());
+    } catch (RuntimeException e) {
+      expected = e.getClass().getName();
+    }
+
+    String actual;
+    try {
+      actual = integer ? String.valueOf(LocaleUtils.toInt(locale, value))
+          : String.valueOf(LocaleUtils.toDouble(locale, value));
+    } catch (RuntimeException e) {
+      actual = e.getClass().getName();
+    }
+
+    if (!expected.equals(actual))
+      fail(locale + " \"" + value + "\": expected " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,53 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class MathUtilsTest {
+  @Test
+  public void testRoundJs() {
+    assertEquals("0", MathUtils.roundJs(0.0, 3));
+    assertEquals("0", MathUtils.roundJs(-0.0001, 3));
+    assertEquals("1", MathUtils.roundJs(1.0, 3));
+    assertEquals("1.5", MathUtils.roundJs(1.5, 3));
+    assertEquals("-1.5", MathUtils.roundJs(-1.5, 3));
+    assertEquals("0.005", MathUtils.roundJs(0.005, 3));
+    assertEquals("0.05", MathUtils.roundJs(0.0501, 3));
+    assertEquals("3.142", MathUtils.roundJs(Math.PI, 3));
+    assertEquals("3.141593", MathUtils.roundJs(Math.PI, 6));
+    assertEquals("123456.789", MathUtils.roundJs(123456.78901, 3));
+    assertEquals("2", MathUtils.roundJs(1.9999, 3));
+    assertEquals("10", MathUtils.roundJs(9.9996, 3));
+  }
+
+  @Test
+  public void testRoundJsSpecialValues() {
+    assertEquals("NaN", MathUtils.roundJs(Double.NaN, 3));
+    assertEquals("Infinity", MathUtils.roundJs(Double.POSITIVE_INFINITY, 3));
+    assertEquals("-Infinity", MathUtils.roundJs(Double.NEGATIVE_INFINITY, 3));
+    assertEquals(String.valueOf(1e20), MathUtils.roundJs(1e20, 3));
+    assertEquals(String.valueOf(51.123456789012345), MathUtils.roundJs(51.123456789012345, 16));
+  }
+
+  @Test
+  public void testRoundCss() {
+    assertEquals("0.333", MathUtils.roundCss(1 / 3.0, 3));
+    assertEquals("0.0001", MathUtils.roundCss(0.0001, 4));
+    assertEquals("12", MathUtils.roundCss(12.0, 2));
+    assertEquals("100000000000000000000", MathUtils.roundCss(1e20, 2));
+  }
+
+  @Test
+  public void testAppend() {
+    StringBuilder sb = new StringBuilder("M");
+    MathUtils.roundJs(MathUtils.roundJs(sb, 1.25, 3).append(','), -2.5, 3);
+    assertEquals("M1.25,-2.5", sb.toString());
+
+    StringWriter sw = new StringWriter();
+    MathUtils.roundJs(sw.append('['), 0.1 + 0.2, 6).append(']');
+    assertEquals("[0.3]", sw.toString());
+  }
+}
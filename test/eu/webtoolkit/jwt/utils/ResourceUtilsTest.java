@@ -0,0 +1,102 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.utils.ResourceUtils.ByteRange;
+
+public class ResourceUtilsTest {
+  private static final String LAST_MODIFIED = "Sun, 06 Nov 1994 08:49:37 GMT";
+  private static final long LAST_MODIFIED_MS = 784111777000L;
+
+  @Test
+  public void testSingleRanges() {
+    assertEquals(Arrays.asList(new ByteRange(0, 499)), ResourceUtils.parseRanges("bytes=0-499", 10000));
+    assertEquals(Arrays.asList(new ByteRange(9500, 9999)), ResourceUtils.parseRanges("bytes=9500-", 10000));
+    assertEquals(Arrays.asList(new ByteRange(9500, 9999)), ResourceUtils.parseRanges("bytes=-500", 10000));
+    assertEquals(Arrays.asList(new ByteRange(0, 99)), ResourceUtils.parseRanges("bytes=-500", 100));
+    assertEquals(Arrays.asList(new ByteRange(50, 99)), ResourceUtils.parseRanges("bytes=50-1000", 100));
+  }
+
+  @Test
+  public void testMultipleRanges() {
+    assertEquals(Arrays.asList(new ByteRange(0, 9), new ByteRange(20, 29)),
+        ResourceUtils.parseRanges("bytes=20-29, 0-9", 100));
+    assertEquals(Arrays.asList(new ByteRange(0, 29)),
+        ResourceUtils.parseRanges("bytes=0-9,10-19,15-29", 100));
+  }
+
+  @Test
+  public void testInvalidAndUnsatisfiableRanges() {
+    assertNull(ResourceUtils.parseRanges(null, 100));
+    assertNull(ResourceUtils.parseRanges("items=0-1", 100));
+    assertNull(ResourceUtils.parseRanges("bytes=5-1", 100));
+    assertNull(ResourceUtils.parseRanges("bytes=a-b", 100));
+    assertNull(ResourceUtils.parseRanges("bytes=-", 100));
+
+    assertTrue(ResourceUtils.parseRanges("bytes=100-", 100).isEmpty());
+    assertTrue(ResourceUtils.parseRanges("bytes=-0", 100).isEmpty());
+  }
+
+  @Test
+  public void testTooManyRanges() {
+    StringBuilder header = new StringBuilder("bytes=");
+    for (int i = 0; i < ResourceUtils.MAX_RANGES + 1; ++i)
+      header.append(i == 0 ? "" : ",").append(i * 10).append('-').append(i * 10 + 1);
+
+    assertNull(ResourceUtils.parseRanges(header.toString(), 1000));
+  }
+
+  @Test
+  public void testNotModified() {
+    String etag = ResourceUtils.createETag(1234, LAST_MODIFIED_MS);
+
+    assertTrue(ResourceUtils.isNotModified(etag, null, etag, LAST_MODIFIED_MS));
+    assertTrue(ResourceUtils.isNotModified("\"x\", W/" + etag, null, etag, LAST_MODIFIED_MS));
+    assertTrue(ResourceUtils.isNotModified("*", null, etag, LAST_MODIFIED_MS));
+    assertFalse(ResourceUtils.isNotModified("\"x\"", LAST_MODIFIED, etag, LAST_MODIFIED_MS));
+
+    assertTrue(ResourceUtils.isNotModified(null, LAST_MODIFIED, etag, LAST_MODIFIED_MS + 500));
+    assertFalse(ResourceUtils.isNotModified(null, LAST_MODIFIED, etag, LAST_MODIFIED_MS + 1000));
+    assertFalse(ResourceUtils.isNotModified(null, "garbage", etag, LAST_MODIFIED_MS));
+  }
+
+  @Test
+  public void testIfRange() {
+    String etag = ResourceUtils.createETag(1234, LAST_MODIFIED_MS);
+
+    assertTrue(ResourceUtils.isRangeApplicable(null, etag, LAST_MODIFIED_MS));
+    assertTrue(ResourceUtils.isRangeApplicable(etag, etag, LAST_MODIFIED_MS));
+    assertFalse(ResourceUtils.isRangeApplicable("W/" + etag, etag, LAST_MODIFIED_MS));
+    assertFalse(ResourceUtils.isRangeApplicable("\"other\"", etag, LAST_MODIFIED_MS));
+    assertTrue(ResourceUtils.isRangeApplicable(LAST_MODIFIED, etag, LAST_MODIFIED_MS));
+    assertFalse(ResourceUtils.isRangeApplicable(LAST_MODIFIED, etag, LAST_MODIFIED_MS + 1000));
+  }
+
+  @Test
+  public void testMultipart() throws IOException {
+    final byte[] data = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    List<ByteRange> ranges = ResourceUtils.parseRanges("bytes=0-1,-3", data.length);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResourceUtils.writeMultipart(out, "B", "text/plain", data.length, ranges,
+        (OutputStream o, long offset, long length) -> o.write(data, (int) offset, (int) length));
+
+    String expected = "\r\n--B\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+        + "\r\n--B\r\nContent-Type: text/plain\r\nContent-Range: bytes 17-19/20\r\n\r\nhij"
+        + "\r\n--B--\r\n";
+    assertEquals(expected, out.toString("US-ASCII"));
+    assertEquals(out.size(), ResourceUtils.getMultipartLength("B", "text/plain", data.length, ranges));
+  }
+}